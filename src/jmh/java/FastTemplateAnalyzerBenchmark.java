@@ -0,0 +1,23 @@
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The IDE independent pre-pass over template fragments of increasing size, without a fixture.
+ * Run with `gradlew jmh`, results are written to build/reports/jmh.
+ */
+@State(Scope.Benchmark)
+public class FastTemplateAnalyzerBenchmark {
+    @Param({"10", "100", "1000"})
+    public int bindingCount;
+
+    private String fragment;
+
+    @Setup(Level.Trial)
+    public void SetUp() {
+        fragment = SyntheticTemplates.ComponentHtml(bindingCount);
+    }
+
+    @Benchmark
+    public FastTemplateAnalysis Analyze() {
+        return FastTemplateAnalyzer.Analyze(fragment);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Generates an Angular component and its template with a given number of bindings, cycling through property,
+ * two way, interpolated call and *ngFor bindings so every path of the analysis is exercised.
+ */
+public class SyntheticTemplates {
+    public static String ComponentHtml(int bindingCount) {
+        StringBuilder html = new StringBuilder("<section>\n");
+        for (int i = 0; i < bindingCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    html.append("  <span [title]=\"title").append(i).append("\"></span>\n");
+                    break;
+                case 1:
+                    html.append("  <input [(ngModel)]=\"model").append(i).append("\">\n");
+                    break;
+                case 2:
+                    html.append("  <button (click)=\"select").append(i).append("()\">{{ format").append(i)
+                            .append("(price").append(i).append(") }}</button>\n");
+                    break;
+                default:
+                    html.append("  <li *ngFor=\"let item of items").append(i).append("; let idx = index\">{{ item.name }} {{ idx }}</li>\n");
+                    break;
+            }
+        }
+        html.append("</section>\n");
+        return html.toString();
+    }
+
+    public static String ComponentTs(int bindingCount) {
+        StringBuilder ts = new StringBuilder();
+        ts.append("import { Component } from '@angular/core';\n\n");
+        ts.append("export interface Item {\n  id: number;\n  name: string;\n}\n\n");
+        ts.append("@Component({\n  selector: 'app-synthetic',\n  templateUrl: './synthetic.component.html'\n})\n");
+        ts.append("export class SyntheticComponent {\n");
+        for (int i = 0; i < bindingCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    ts.append("  title").append(i).append(": string;\n");
+                    break;
+                case 1:
+                    ts.append("  model").append(i).append(": string;\n");
+                    break;
+                case 2:
+                    ts.append("  price").append(i).append(": number;\n");
+                    ts.append("  format").append(i).append("(value: number): string { return value.toFixed(2); }\n");
+                    ts.append("  select").append(i).append("() {}\n");
+                    break;
+                default:
+                    ts.append("  items").append(i).append(": Item[] = [];\n");
+                    break;
+            }
+        }
+        ts.append("}\n");
+        return ts.toString();
+    }
+
+    /**
+     * Makes the Angular plugin treat the fixture as an Angular project.
+     */
+    public static String PackageJson() {
+        return "{\n  \"name\": \"synthetic\",\n  \"dependencies\": {\n    \"@angular/core\": \"6.1.10\"\n  }\n}\n";
+    }
+}
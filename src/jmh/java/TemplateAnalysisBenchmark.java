@@ -0,0 +1,81 @@
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.CodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.impl.LightTempDirTestFixtureImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+
+/**
+ * The analysis and rendering of an extraction over templates of increasing size.
+ * Run with `gradlew jmh`, results are written to build/reports/jmh.
+ */
+@State(Scope.Benchmark)
+public class TemplateAnalysisBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int bindingCount;
+
+    private CodeInsightTestFixture fixture;
+    private PsiFile templateFile;
+    private PsiElement[] rootElements;
+    private TemplateAnalyzer analyzedTemplate;
+    private TemplateAnalysis analysis;
+    private ComponentEmitter emitter;
+
+    @Setup(Level.Trial)
+    public void SetUp() throws Throwable {
+        IdeaProjectTestFixture projectFixture = IdeaTestFixtureFactory.getFixtureFactory().createLightFixtureBuilder().getFixture();
+        fixture = IdeaTestFixtureFactory.getFixtureFactory().createCodeInsightFixture(projectFixture, new LightTempDirTestFixtureImpl(true));
+        EdtTestUtil.runInEdtAndWait(() -> {
+            fixture.setUp();
+            fixture.addFileToProject("package.json", SyntheticTemplates.PackageJson());
+            fixture.addFileToProject("src/app/synthetic.component.ts", SyntheticTemplates.ComponentTs(bindingCount));
+            templateFile = fixture.addFileToProject("src/app/synthetic.component.html", SyntheticTemplates.ComponentHtml(bindingCount));
+        });
+        rootElements = ReadAction.compute(() -> new PsiElement[]{((XmlFile) templateFile).getRootTag()});
+
+        analyzedTemplate = new TemplateAnalyzer(new ResolutionCache(templateFile), new ExtractionMetrics());
+        analysis = ReadAction.compute(() -> analyzedTemplate.Analyze(rootElements));
+        emitter = ReadAction.compute(() -> new ComponentEmitter(templateFile));
+    }
+
+    @TearDown(Level.Trial)
+    public void TearDown() throws Throwable {
+        EdtTestUtil.runInEdtAndWait(() -> fixture.tearDown());
+    }
+
+    /**
+     * Measures a first extraction, the template's resolution cache is invalidated before every call.
+     */
+    @Setup(Level.Invocation)
+    public void InvalidateCaches() {
+        ((PsiModificationTrackerImpl) PsiModificationTracker.SERVICE.getInstance(fixture.getProject())).incCounter();
+    }
+
+    @Benchmark
+    public TemplateAnalysis Analyze() {
+        return ReadAction.compute(() -> new TemplateAnalyzer(new ResolutionCache(templateFile), new ExtractionMetrics()).Analyze(rootElements));
+    }
+
+    @Benchmark
+    public List<InputField> TransformForRendering() {
+        return TemplateAnalyzer.TransformForRendering(analyzedTemplate.bindings);
+    }
+
+    @Benchmark
+    public String RenderComponentTs() {
+        return emitter.RenderComponentTs("Synthetic", "synthetic", analysis);
+    }
+
+    @Benchmark
+    public String RenderComponentHtml() {
+        return emitter.RenderComponentHtml(analysis);
+    }
+}
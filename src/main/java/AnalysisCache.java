@@ -0,0 +1,36 @@
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.Trinity;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Analyses of template selections, kept on the template file until the next PSI change.
+ * The analysis doesn't depend on the component name, so a preview and the extraction confirming it share one.
+ */
+public class AnalysisCache {
+    private static final Key<CachedValue<Map<Trinity<TextRange, Boolean, Boolean>, TemplateAnalysis>>> ANALYSES_KEY = Key.create("AngularExtractComponent.Analyses");
+
+    public static TemplateAnalysis GetOrAnalyze(PsiFile templateFile, TextRange selectionRange, Supplier<TemplateAnalysis> analyzer) {
+        Map<Trinity<TextRange, Boolean, Boolean>, TemplateAnalysis> analyses = CachedValuesManager.getCachedValue(templateFile, ANALYSES_KEY,
+                () -> CachedValueProvider.Result.create(new ConcurrentHashMap<>(), PsiModificationTracker.MODIFICATION_COUNT));
+        //whether calls become pipes changes what is bound and the styles are only matched when they are migrated,
+        //an analysis made with other settings doesn't apply
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        Trinity<TextRange, Boolean, Boolean> key = Trinity.create(selectionRange, settings.generatePurePipes, settings.migrateStyles);
+        TemplateAnalysis analysis = analyses.get(key);
+        if (analysis == null) {
+            //not computeIfAbsent, the analysis may be cancelled and it must not block other selections
+            analysis = analyzer.get();
+            analyses.put(key, analysis);
+        }
+        return analysis;
+    }
+}
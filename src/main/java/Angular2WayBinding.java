@@ -1,5 +1,7 @@
 import org.angular2.lang.html.psi.Angular2HtmlBananaBoxBinding;
 
+import java.util.List;
+
 public class Angular2WayBinding extends AngularBinding {
     public Angular2HtmlBananaBoxBinding bananaBoxBinding;
 
@@ -9,6 +11,15 @@ public class Angular2WayBinding extends AngularBinding {
     }
 
     public InputField getInputField() {
-        return inputFields.iterator().next();
+        return inputFields.get(0);
+    }
+
+    @Override
+    void CollectHtmlEdits(List<TextEdit> htmlEdits, int fragmentOffset, ComponentEmitter emitter) {
+        super.CollectHtmlEdits(htmlEdits, fragmentOffset, emitter);
+        if (inputFields.isEmpty()) return;
+        String attribute = " (" + bananaBoxBinding.getPropertyName() + "Change)="
+                + emitter.QuoteAttribute(getInputField().fieldName + "Change.emit($event)");
+        htmlEdits.add(TextEdit.Insert(bananaBoxBinding.getTextRange().getEndOffset() - fragmentOffset, attribute));
     }
 }
@@ -1,68 +1,142 @@
 import com.intellij.lang.javascript.psi.*;
 import com.intellij.lang.javascript.psi.ecma6.TypeScriptField;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptFunction;
 import com.intellij.lang.javascript.psi.resolve.JSTypeEvaluator;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.tree.IElementType;
 import org.angular2.lang.expr.psi.Angular2PipeArgumentsList;
 import org.angular2.lang.expr.psi.Angular2PipeReferenceExpression;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class AngularBinding {
-    public final Collection<JSReferenceExpression> referenceExpressions;
+    public final List<JSReferenceExpression> referenceExpressions = new ArrayList<>();
+    private final List<PsiElement> referenceScopes = new ArrayList<>();
+    private final List<TemplateSymbol> referenceSymbols = new ArrayList<>();
+    /**
+     * The call a reference is an argument of, it's only bound when that call becomes a pipe.
+     */
+    private final List<JSCallExpression> referenceCalls = new ArrayList<>();
     public final JSElement element;
     public boolean isTwoWayBinding;
-    public final Collection<JSCallExpression> callExpressions;
-    public final Set<InputField> inputFields;
+    public final List<JSCallExpression> callExpressions = new ArrayList<>();
+    public final List<InputField> inputFields = new ArrayList<>();
+    public final Map<JSCallExpression, PipeDefinition> pipes = new LinkedHashMap<>();
 
     public AngularBinding(JSElement element, boolean isTwoWayBinding) {
         this.element = element;
         this.isTwoWayBinding = isTwoWayBinding;
-        callExpressions = FindTopLevelCallExpressions();
-        referenceExpressions = FindTopLevelReferenceExpressions();
-
-        inputFields = Stream.concat(
-                referenceExpressions.stream().map(this::ToInputField),
-                callExpressions.stream().map(this::ToInputField)
-        ).filter(Objects::nonNull).collect(Collectors.toSet());
-    }
-
-    private Collection<JSReferenceExpression> FindTopLevelReferenceExpressions() {
-        final Collection<JSReferenceExpression> referenceExpressions = new HashSet<>();
-        element.acceptChildren(new JSRecursiveWalkingElementVisitor() {
-            @Override
-            public void visitJSReferenceExpression(JSReferenceExpression node) {
-                JSReferenceExpression referenceExpression = FindFirstReferenceExpression(node);
-                if (referenceExpression == null) return;
-                referenceExpressions.add(referenceExpression);
-            }
-        });
-        return referenceExpressions;
-    }
-
-    private JSReferenceExpression FindFirstReferenceExpression(JSReferenceExpression node) {
-        if (node instanceof Angular2PipeReferenceExpression) return null;
-        PsiElement element = node;
-        while (element.getParent() instanceof JSReferenceExpression || element.getParent() instanceof JSCallExpression) {
-            element = element.getParent();
+    }
+
+    void AddReferenceExpression(JSReferenceExpression node, TemplateSymbolTable templateSymbols) {
+        if (node instanceof Angular2PipeReferenceExpression) return;
+        //only the start of a reference chain is bound, `item` for `item.price`
+        JSExpression qualifier = node.getQualifier();
+        if (qualifier != null && !(qualifier instanceof JSThisExpression)) return;
+        JSCallExpression argumentOf = null;
+        if (!IsBindableReferenceExpression(node)) {
+            //an argument of a call could still be bound if the call is turned into a pipe
+            if (!(node.getParent() instanceof JSArgumentList)) return;
+            argumentOf = (JSCallExpression) node.getParent().getParent();
         }
-        while (element.getFirstChild() != null) {
-            element = element.getFirstChild();
+        referenceExpressions.add(node);
+        referenceCalls.add(argumentOf);
+        referenceScopes.add(templateSymbols.CurrentScope());
+        //a template variable is looked up by name now, while the walk knows which declarations are visible
+        referenceSymbols.add(qualifier == null ? templateSymbols.Find(node.getReferenceName()) : null);
+    }
+
+    void AddCallExpression(JSCallExpression node) {
+        int last = callExpressions.size() - 1;
+        //calls sharing a start offset are visited one after another, only the innermost one is kept
+        if (last >= 0 && IsLeadingDescendant(node, callExpressions.get(last))) {
+            callExpressions.set(last, node);
+        } else {
+            callExpressions.add(node);
         }
-        while (element.getParent() != node.getParent()) {
+    }
+
+    private static boolean IsLeadingDescendant(PsiElement element, PsiElement ancestor) {
+        while (element != null && element != ancestor && element.getPrevSibling() == null) {
             element = element.getParent();
-            if (element instanceof Angular2PipeReferenceExpression || element instanceof JSCallExpression)
-                return null;
-            if (IsBindableReferenceExpression(element))
-                return (JSReferenceExpression) element;
         }
-        return null;
+        return element == ancestor;
+    }
+
+    void ResolveInputFields(ResolutionCache resolutionCache, TextRange selectionRange, ExtractionMetrics metrics) {
+        Map<JSCallExpression, String> returnTypes = new LinkedHashMap<>();
+        for (JSCallExpression callExpression : callExpressions) {
+            String returnType = ReturnType(callExpression, metrics);
+            returnTypes.put(callExpression, returnType);
+            PipeDefinition pipe = ToPipe(callExpression, returnType, metrics);
+            if (pipe != null) pipes.put(callExpression, pipe);
+        }
+        for (int i = 0; i < referenceExpressions.size(); i++) {
+            JSCallExpression argumentOf = referenceCalls.get(i);
+            if (argumentOf != null && !pipes.containsKey(argumentOf)) continue;
+            TemplateSymbol templateSymbol = referenceSymbols.get(i);
+            InputField inputField = templateSymbol != null
+                    ? templateSymbol.ToInputField(isTwoWayBinding, selectionRange)
+                    : resolutionCache.ToInputField(referenceExpressions.get(i), referenceScopes.get(i),
+                    isTwoWayBinding, selectionRange, reference -> ResolveReference(reference, metrics));
+            if (inputField != null && !inputFields.contains(inputField)) inputFields.add(inputField);
+        }
+        for (JSCallExpression callExpression : callExpressions) {
+            if (pipes.containsKey(callExpression)) continue;
+            InputField inputField = new InputField(callExpressionFieldName(callExpression), returnTypes.get(callExpression), callExpression.getText());
+            if (!inputFields.contains(inputField)) inputFields.add(inputField);
+        }
+    }
+
+    /**
+     * @param emitter quotes added attributes like the rest of the generated markup
+     */
+    void CollectHtmlEdits(List<TextEdit> htmlEdits, int fragmentOffset, ComponentEmitter emitter) {
+        for (JSCallExpression callExpression : callExpressions) {
+            TextRange range = callExpression.getTextRange().shiftLeft(fragmentOffset);
+            PipeDefinition pipe = pipes.get(callExpression);
+            String replacement = pipe == null ? callExpressionFieldName(callExpression) : PipeExpression(callExpression, pipe);
+            htmlEdits.add(new TextEdit(range.getStartOffset(), range.getEndOffset(), replacement));
+        }
+    }
+
+    /**
+     * `formatTotal(order, currency)` in OrderListComponent becomes `order | orderListFormatTotal:currency`, so Angular only reruns
+     * it when an argument changes.
+     */
+    private static String PipeExpression(JSCallExpression callExpression, PipeDefinition pipe) {
+        JSExpression[] arguments = callExpression.getArguments();
+        StringBuilder pipeExpression = new StringBuilder(PipeOperand(arguments[0])).append(" | ").append(pipe.pipeName);
+        for (int i = 1; i < arguments.length; i++) {
+            pipeExpression.append(':').append(PipeOperand(arguments[i]));
+        }
+        //a pipe binds weaker than any other operator
+        return callExpression.getParent() instanceof JSExpression ? "(" + pipeExpression + ")" : pipeExpression.toString();
+    }
+
+    private static String PipeOperand(JSExpression argument) {
+        boolean isSimple = argument instanceof JSReferenceExpression || argument instanceof JSLiteralExpression
+                || argument instanceof JSCallExpression || argument instanceof JSIndexedPropertyAccessExpression
+                || argument instanceof JSParenthesizedExpression;
+        return isSimple ? argument.getText() : "(" + argument.getText() + ")";
+    }
+
+    private static @Nullable PipeDefinition ToPipe(JSCallExpression callExpression, @Nullable String returnType, ExtractionMetrics metrics) {
+        if (!ExtractComponentSettings.getInstance().generatePurePipes || callExpression.getArguments().length == 0) return null;
+        JSExpression methodExpression = callExpression.getMethodExpression();
+        if (!(methodExpression instanceof JSReferenceExpression)) return null;
+        JSExpression qualifier = ((JSReferenceExpression) methodExpression).getQualifier();
+        if (qualifier != null && !(qualifier instanceof JSThisExpression)) return null;
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
+        PsiElement method = ((JSReferenceExpression) methodExpression).resolve();
+        if (!(method instanceof TypeScriptFunction)) return null;
+        return PurePipeFactory.FromMethod((TypeScriptFunction) method, returnType, metrics);
     }
 
     private boolean IsBindableReferenceExpression(PsiElement element) {
@@ -90,56 +164,51 @@ public class AngularBinding {
         return prevSibling == null;
     }
 
-    private Collection<JSCallExpression> FindTopLevelCallExpressions() {
-        final Collection<JSCallExpression> callExpressions = new HashSet<>();
-        element.acceptChildren(new JSRecursiveWalkingElementVisitor() {
-            @Override
-            public void visitJSCallExpression(JSCallExpression node) {
-                PsiElement element = node;
-                while (element.getFirstChild() != null) {
-                    element = element.getFirstChild();
-                }
-                while (node.getParent() != element && !(element instanceof JSCallExpression)) {
-                    element = element.getParent();
-                }
-                if (element instanceof JSCallExpression)
-                    callExpressions.add((JSCallExpression) element);
-            }
-        });
-        return callExpressions;
-    }
-
-    private @Nullable InputField ToInputField(JSReferenceExpression referenceExpression) {
+    private static ResolvedReference ResolveReference(JSReferenceExpression referenceExpression, ExtractionMetrics metrics) {
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
         PsiElement psiReference = referenceExpression.resolve();
         if (psiReference == null) {
-            return TryToResolveReference(referenceExpression);
+            return TryToResolveReference(referenceExpression, metrics);
         }
         if (psiReference instanceof TypeScriptField) {
             TypeScriptField typeScriptField = (TypeScriptField) psiReference;
-            JSType type = typeScriptField.getJSType();
-            return new InputField(typeScriptField.getName(), type == null ? null : type.toString(), referenceExpression.getText(), isTwoWayBinding);
+            return new ResolvedReference(typeScriptField.getName(), TypeScriptTypes.ToTypeText(typeScriptField.getJSType()));
+        }
+        if (psiReference instanceof TypeScriptFunction && ((TypeScriptFunction) psiReference).isGetProperty()) {
+            TypeScriptFunction getter = (TypeScriptFunction) psiReference;
+            String type = MemberTypeCache.getInstance(referenceExpression.getProject())
+                    .MemberType(getter, () -> EvaluatedType(referenceExpression, metrics));
+            return new ResolvedReference(getter.getName(), type);
+        }
+        if (psiReference.getContainingFile() == referenceExpression.getContainingFile()) {
+            //a template variable, bound only when it's declared outside of the extracted fragment
+            return TryToResolveReference(referenceExpression, metrics).DeclaredAt(psiReference.getTextRange().getStartOffset());
         }
 
-        return null;
+        return ResolvedReference.NONE;
     }
 
-    private InputField TryToResolveReference(JSReferenceExpression referenceExpression) {
-        if (referenceExpression.getQualifier() != null) return null;
+    private static ResolvedReference TryToResolveReference(JSReferenceExpression referenceExpression, ExtractionMetrics metrics) {
+        if (referenceExpression.getQualifier() != null) return ResolvedReference.NONE;
         //looks like it's a template
-        String type = null;
-        //todo determine field type
-        JSTypeEvaluationResult elementType = JSTypeEvaluator.getElementType(referenceExpression);
-        if (elementType != null) {
-            JSType jsType = elementType.getType();
-            if (jsType != null) type = jsType.toString();
-            if ("*".equals(type)) type = "any";
-        }
-        return new InputField(referenceExpression.getReferenceName(), type, referenceExpression.getText(), isTwoWayBinding);
+        String type = TypeScriptTypes.ToTypeText(EvaluatedType(referenceExpression, metrics));
+        return new ResolvedReference(referenceExpression.getReferenceName(), type);
+    }
+
+    private static @Nullable String ReturnType(JSCallExpression callExpression, ExtractionMetrics metrics) {
+        JSExpression methodExpression = callExpression.getMethodExpression();
+        if (!(methodExpression instanceof JSReferenceExpression)) return null;
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
+        PsiElement method = ((JSReferenceExpression) methodExpression).resolve();
+        if (!(method instanceof TypeScriptFunction)) return TypeScriptTypes.ToTypeText(EvaluatedType(callExpression, metrics));
+        return MemberTypeCache.getInstance(callExpression.getProject())
+                .MemberType((TypeScriptFunction) method, () -> EvaluatedType(callExpression, metrics));
     }
 
-    private InputField ToInputField(JSCallExpression callExpression) {
-        //todo determine return type of method call
-        return new InputField(callExpressionFieldName(callExpression), null, callExpression.getText());
+    private static @Nullable JSType EvaluatedType(JSExpression expression, ExtractionMetrics metrics) {
+        metrics.Count(ExtractionMetrics.TYPE_EVALUATIONS);
+        JSTypeEvaluationResult result = JSTypeEvaluator.getElementType(expression);
+        return result == null ? null : result.getType();
     }
 
     public static String callExpressionFieldName(JSCallExpression callExpression) {
@@ -1,7 +1,5 @@
 import com.intellij.lang.javascript.psi.JSCallExpression;
-import com.intellij.lang.javascript.psi.JSRecursiveWalkingElementVisitor;
 import org.angular2.lang.expr.psi.Angular2Action;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -11,21 +9,15 @@ public class AngularEvent {
 
     public AngularEvent(Angular2Action action) {
         this.action = action;
-        JSCallExpression callExpression = FindFirstCallExpression();
-        if (callExpression == null) return;
+    }
+
+    void SetFirstCallExpression(JSCallExpression callExpression) {
+        if (eventName != null) return;
         eventName = callExpression.getMethodExpression().getText();
     }
 
-    private @Nullable JSCallExpression FindFirstCallExpression() {
-        final JSCallExpression[] callExpression = new JSCallExpression[1];
-        action.acceptChildren(new JSRecursiveWalkingElementVisitor() {
-            @Override
-            public void visitJSCallExpression(JSCallExpression node) {
-                callExpression[0] = node;
-                stopWalking();
-            }
-        });
-        return callExpression[0];
+    OutputField ToOutputField() {
+        return new OutputField(eventName, action.getText());
     }
 
     @Override
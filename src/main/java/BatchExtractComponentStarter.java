@@ -0,0 +1,229 @@
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarterEx;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.IncorrectOperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts components without any UI:
+ * `idea extractAngularComponents <project dir> <manifest>`
+ * where every manifest line is `template path<TAB>start offset<TAB>end offset<TAB>ComponentName`,
+ * template paths being relative to the project. Empty lines and lines starting with # are skipped.
+ */
+public class BatchExtractComponentStarter extends ApplicationStarterEx {
+    /**
+     * Templates written in one write command, all selections of a template always go into the same one.
+     */
+    static final int TEMPLATES_PER_WRITE = 50;
+
+    @Override
+    public String getCommandName() {
+        return "extractAngularComponents";
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void premain(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: extractAngularComponents <project dir> <manifest>");
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public void main(String[] args) {
+        //the EDT stays free for the write actions while the batch runs
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            int exitCode = 1;
+            try {
+                exitCode = Run(new File(args[1]), new File(args[2]));
+            } catch (Throwable e) {
+                e.printStackTrace();
+            } finally {
+                Exit(exitCode);
+            }
+        });
+    }
+
+    private static void Exit(int exitCode) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            ApplicationManagerEx.getApplicationEx().exit(true, true);
+            System.exit(exitCode);
+        });
+    }
+
+    private static int Run(File projectDir, File manifestFile) throws IOException {
+        List<ManifestEntry> entries = ReadManifest(manifestFile);
+        Project[] opened = new Project[1];
+        ApplicationManager.getApplication().invokeAndWait(() -> opened[0] = ProjectUtil.openOrImport(projectDir.getAbsolutePath(), null, false));
+        Project project = opened[0];
+        VirtualFile baseDir = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(projectDir);
+        if (project == null || baseDir == null) {
+            System.err.println("Could not open project " + projectDir);
+            return 1;
+        }
+        DumbService.getInstance(project).waitForSmartMode();
+
+        ExtractionMetrics metrics = new ExtractionMetrics();
+        int failures = Extract(project, baseDir, entries, metrics);
+        metrics.Report(failures == 0 ? "success" : "failed", entries.size());
+        return failures == 0 ? 0 : 1;
+    }
+
+    /**
+     * Analyzes each batch right before writing it. A module shared by the templates of several batches is edited by
+     * every one of them, a plan made before an earlier batch was written would no longer match its text.
+     *
+     * @return the number of entries that weren't extracted
+     */
+    static int Extract(Project project, VirtualFile baseDir, List<ManifestEntry> entries, ExtractionMetrics metrics) {
+        //one helper for the whole batch so selections of the same template share its resolution cache
+        RefactorHelper refactorHelper = new RefactorHelper(project, metrics);
+        Map<VirtualFile, List<ManifestEntry>> entriesByTemplate = new LinkedHashMap<>();
+        int failures = 0;
+        for (ManifestEntry entry : entries) {
+            VirtualFile templateFile = baseDir.findFileByRelativePath(entry.templatePath);
+            if (templateFile == null) {
+                System.err.println("Skipped " + entry + ": the template doesn't exist");
+                failures++;
+                continue;
+            }
+            entriesByTemplate.computeIfAbsent(templateFile, file -> new ArrayList<>()).add(entry);
+        }
+
+        List<Map.Entry<VirtualFile, List<ManifestEntry>>> templates = new ArrayList<>(entriesByTemplate.entrySet());
+        for (int batchStart = 0; batchStart < templates.size(); batchStart += TEMPLATES_PER_WRITE) {
+            List<ExtractionPlan> plans = new ArrayList<>();
+            int batchEnd = Math.min(batchStart + TEMPLATES_PER_WRITE, templates.size());
+            for (Map.Entry<VirtualFile, List<ManifestEntry>> template : templates.subList(batchStart, batchEnd)) {
+                failures += AnalyzeTemplate(project, refactorHelper, template.getKey(), template.getValue(), plans);
+            }
+            if (plans.isEmpty()) continue;
+            String failure = Apply(project, refactorHelper, plans);
+            for (ExtractionPlan plan : plans) {
+                if (failure == null) {
+                    System.out.println("Extracted " + plan.componentNameCamelCase + "Component from " + plan.analysis.templateFile.getPath());
+                    if (plan.changeDetectionWarning != null) System.err.println(plan.changeDetectionWarning);
+                    if (plan.stylesWarning != null) System.err.println(plan.stylesWarning);
+                } else {
+                    System.err.println("Failed " + plan.componentNameCamelCase + "Component from " + plan.analysis.templateFile.getPath() + ": " + failure);
+                    failures++;
+                }
+            }
+        }
+
+        ApplicationManager.getApplication().invokeAndWait(() -> FileDocumentManager.getInstance().saveAllDocuments());
+        return failures;
+    }
+
+    /**
+     * @return the number of the template's entries that can't be extracted
+     */
+    private static int AnalyzeTemplate(Project project, RefactorHelper refactorHelper, VirtualFile templateFile,
+                                       List<ManifestEntry> entries, List<ExtractionPlan> plans) {
+        List<ExtractionPlan> templatePlans = new ArrayList<>();
+        int failures = 0;
+        for (ManifestEntry entry : entries) {
+            ExtractionPlan plan = ReadAction.compute(() -> Analyze(project, refactorHelper, templateFile, entry));
+            if (plan == null) {
+                System.err.println("Skipped " + entry + ": the range doesn't select extractable elements");
+                failures++;
+                continue;
+            }
+            if (templatePlans.stream().anyMatch(other -> other.SelectionRange().intersectsStrict(plan.SelectionRange()))) {
+                System.err.println("Skipped " + entry + ": it overlaps another selection of the same template");
+                failures++;
+                continue;
+            }
+            templatePlans.add(plan);
+        }
+        plans.addAll(templatePlans);
+        return failures;
+    }
+
+    private static ExtractionPlan Analyze(Project project, RefactorHelper refactorHelper, VirtualFile templateFile, ManifestEntry entry) {
+        PsiFile file = PsiManager.getInstance(project).findFile(templateFile);
+        if (file == null || entry.range.getEndOffset() > file.getTextLength()) return null;
+        PsiElement[] elements = ExtractComponentHandler.FindElementsInRange(file, entry.range.getStartOffset(),
+                entry.range.getEndOffset(), entry.range.substring(file.getText()));
+        if (elements == null) return null;
+        return refactorHelper.Analyze(elements, entry.componentNameCamelCase);
+    }
+
+    /**
+     * @return why the batch failed, null when it was written
+     */
+    private static String Apply(Project project, RefactorHelper refactorHelper, List<ExtractionPlan> plans) {
+        String[] failure = new String[1];
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            try {
+                WriteCommandAction.runWriteCommandAction(project, "Extract Components", null, () -> refactorHelper.Apply(plans));
+            } catch (IncorrectOperationException e) {
+                failure[0] = e.getMessage();
+            } catch (RuntimeException e) {
+                failure[0] = "rolled back after " + e;
+            }
+        });
+        return failure[0];
+    }
+
+    static List<ManifestEntry> ReadManifest(File manifestFile) throws IOException {
+        List<ManifestEntry> entries = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] columns = line.split("\t");
+            if (columns.length != 4) {
+                throw new IOException(manifestFile + ":" + (i + 1) + ": expected 4 tab separated columns");
+            }
+            try {
+                entries.add(new ManifestEntry(columns[0], new TextRange(Integer.parseInt(columns[1]), Integer.parseInt(columns[2])), columns[3]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(manifestFile + ":" + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    static class ManifestEntry {
+        final String templatePath;
+        final TextRange range;
+        final String componentNameCamelCase;
+
+        ManifestEntry(String templatePath, TextRange range, String componentNameCamelCase) {
+            this.templatePath = templatePath;
+            this.range = range;
+            this.componentNameCamelCase = componentNameCamelCase;
+        }
+
+        @Override
+        public String toString() {
+            return templatePath + " " + range + " " + componentNameCamelCase;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+import com.intellij.application.options.CodeStyle;
+import com.intellij.ide.highlighter.HtmlFileType;
+import com.intellij.lang.javascript.TypeScriptFileType;
+import com.intellij.lang.typescript.formatter.TypeScriptCodeStyleSettings;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.codeStyle.CodeStyleSettings;
+import com.intellij.psi.codeStyle.CommonCodeStyleSettings;
+import com.intellij.psi.formatter.xml.HtmlCodeStyleSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the generated component files already laid out by the project's code style, so they don't need a reformat.
+ */
+public class ComponentEmitter {
+    private final String indent;
+    private final char quote;
+    private final String semicolon;
+    private final String importBracesPadding;
+    private final char htmlQuote;
+    private final CommonCodeStyleSettings.IndentOptions htmlIndentOptions;
+
+    public ComponentEmitter(PsiFile templateFile) {
+        CodeStyleSettings settings = CodeStyle.getSettings(templateFile);
+        CommonCodeStyleSettings.IndentOptions indentOptions = settings.getIndentOptions(TypeScriptFileType.INSTANCE);
+        indent = indentOptions.USE_TAB_CHARACTER ? "\t" : StringUtil.repeatSymbol(' ', indentOptions.INDENT_SIZE);
+        TypeScriptCodeStyleSettings typeScriptSettings = settings.getCustomSettings(TypeScriptCodeStyleSettings.class);
+        quote = typeScriptSettings.USE_DOUBLE_QUOTES ? '"' : '\'';
+        semicolon = typeScriptSettings.USE_SEMICOLON_AFTER_STATEMENT ? ";" : "";
+        importBracesPadding = typeScriptSettings.SPACES_WITHIN_IMPORTS ? " " : "";
+        HtmlCodeStyleSettings htmlSettings = settings.getCustomSettings(HtmlCodeStyleSettings.class);
+        htmlQuote = htmlSettings.HTML_QUOTE_STYLE == CodeStyleSettings.QuoteStyle.Single ? '\'' : '"';
+        htmlIndentOptions = settings.getIndentOptions(HtmlFileType.INSTANCE);
+    }
+
+    public String RenderInvocation(String componentHyphen, TemplateAnalysis analysis) {
+        StringBuilder htmlBuilder = new StringBuilder();
+        htmlBuilder.append("<app-").append(componentHyphen);
+        for (InputField inputField : analysis.inputFields) {
+            if (inputField.isTwoWay) {
+                htmlBuilder.append(" [(").append(inputField.fieldName).append(")]=");
+            } else {
+                htmlBuilder.append(" [").append(inputField.fieldName).append("]=");
+            }
+            htmlBuilder.append(QuoteAttribute(inputField.originalBody));
+        }
+        for (OutputField event : analysis.outputFields) {
+            htmlBuilder.append(" (").append(event.eventName).append(")=");
+            htmlBuilder.append(QuoteAttribute(event.originalBody));
+        }
+        htmlBuilder.append(">");
+        htmlBuilder.append("</app-").append(componentHyphen).append(">");
+        return htmlBuilder.toString();
+    }
+
+    public String RenderComponentHtml(TemplateAnalysis analysis) {
+        String html = new TextEditList(analysis.htmlEdits).Apply(analysis.fragmentText);
+        return Unindent(html, analysis.fragmentIndent) + "\n";
+    }
+
+    /**
+     * The first line of the fragment starts at the selection, the following ones still carry the parent's indentation.
+     * What is left of it is laid out again with the tabs or spaces of the HTML code style, the nesting stays as it was.
+     */
+    private String Unindent(String html, String fragmentIndent) {
+        StringBuilder builder = new StringBuilder(html.length());
+        int lineStart = 0;
+        while (lineStart < html.length()) {
+            ProgressManager.checkCanceled();
+            int lineEnd = html.indexOf('\n', lineStart);
+            lineEnd = lineEnd < 0 ? html.length() : lineEnd + 1;
+            int contentStart = lineStart;
+            if (lineStart > 0) {
+                int maxIndentEnd = Math.min(lineStart + fragmentIndent.length(), lineEnd);
+                while (contentStart < maxIndentEnd && html.charAt(contentStart) == fragmentIndent.charAt(contentStart - lineStart)) {
+                    contentStart++;
+                }
+            }
+            int column = 0;
+            while (contentStart < lineEnd && (html.charAt(contentStart) == ' ' || html.charAt(contentStart) == '\t')) {
+                column = html.charAt(contentStart) == '\t' ? column + htmlIndentOptions.TAB_SIZE - column % htmlIndentOptions.TAB_SIZE : column + 1;
+                contentStart++;
+            }
+            AppendIndent(builder, column);
+            builder.append(html, contentStart, lineEnd);
+            lineStart = lineEnd;
+        }
+        return builder.toString();
+    }
+
+    private void AppendIndent(StringBuilder builder, int column) {
+        if (htmlIndentOptions.USE_TAB_CHARACTER && htmlIndentOptions.TAB_SIZE > 0) {
+            StringUtil.repeatSymbol(builder, '\t', column / htmlIndentOptions.TAB_SIZE);
+            StringUtil.repeatSymbol(builder, ' ', column % htmlIndentOptions.TAB_SIZE);
+        } else {
+            StringUtil.repeatSymbol(builder, ' ', column);
+        }
+    }
+
+    public String RenderComponentTs(String componentNameCamelCase, String componentHyphen, TemplateAnalysis analysis) {
+        return RenderComponentTs(componentNameCamelCase, componentHyphen, analysis, false, false, analysis.templateFile.getParent().getPath());
+    }
+
+    /**
+     * @param onPush emits OnPush change detection with readonly inputs, only the ones written back through an EventEmitter stay writable
+     * @param hasStylesheet refers to a .component.css next to the component instead of empty inline styles
+     * @param directoryPath where the component file goes, the imports of the trackBy item types are made relative to it
+     */
+    public String RenderComponentTs(String componentNameCamelCase, String componentHyphen, TemplateAnalysis analysis,
+                                    boolean onPush, boolean hasStylesheet, String directoryPath) {
+        StringBuilder tsBuilder = new StringBuilder();
+        List<String> imports = new ArrayList<>();
+        if (onPush) imports.add("ChangeDetectionStrategy");
+        imports.add("Component");
+        if (!analysis.inputFields.isEmpty()) imports.add("Input");
+        if (!analysis.outputFields.isEmpty() || analysis.HasTwoWayBindings()) {
+            imports.add("Output");
+            imports.add("EventEmitter");
+        }
+        tsBuilder.append(RenderImport(imports, "@angular/core")).append("\n");
+        AddTrackByImports(tsBuilder, analysis.trackByFunctions, directoryPath);
+        tsBuilder.append("\n");
+
+        AddComponentDecorator(tsBuilder, componentHyphen, onPush, hasStylesheet);
+        tsBuilder.append("export class ").append(componentNameCamelCase).append("Component {\n");
+        AddInputs(tsBuilder, analysis.inputFields, onPush);
+        AddEvents(tsBuilder, analysis.outputFields);
+        AddTrackByFunctions(tsBuilder, analysis.trackByFunctions);
+        tsBuilder.append("}\n");
+        return tsBuilder.toString();
+    }
+
+    /**
+     * A component loaded through a route, it reads its inputs from the query parameters instead of @Input bindings.
+     * Only for fragments without {@link RoutingBoundary#Blockers}.
+     */
+    public String RenderRoutedComponentTs(String componentNameCamelCase, String componentHyphen, TemplateAnalysis analysis,
+                                          boolean hasStylesheet, String directoryPath) {
+        StringBuilder tsBuilder = new StringBuilder();
+        boolean hasQueryParams = !analysis.inputFields.isEmpty();
+        tsBuilder.append(RenderImport(hasQueryParams ? Arrays.asList("Component", "OnInit") : Collections.singletonList("Component"),
+                "@angular/core")).append("\n");
+        if (hasQueryParams) tsBuilder.append(RenderImport(Collections.singletonList("ActivatedRoute"), "@angular/router")).append("\n");
+        AddTrackByImports(tsBuilder, analysis.trackByFunctions, directoryPath);
+        tsBuilder.append("\n");
+
+        AddComponentDecorator(tsBuilder, componentHyphen, false, hasStylesheet);
+        tsBuilder.append("export class ").append(componentNameCamelCase).append("Component");
+        tsBuilder.append(hasQueryParams ? " implements OnInit {\n" : " {\n");
+        if (hasQueryParams) {
+            for (InputField inputField : analysis.inputFields) {
+                tsBuilder.append(indent).append(inputField.fieldName).append(": ")
+                        .append(inputField.fieldType == null ? "any" : inputField.fieldType).append(semicolon).append("\n");
+            }
+            tsBuilder.append("\n");
+            tsBuilder.append(indent).append("constructor(private route: ActivatedRoute) {\n");
+            tsBuilder.append(indent).append("}\n\n");
+            tsBuilder.append(indent).append("ngOnInit() {\n");
+            tsBuilder.append(indent).append(indent).append("this.route.queryParamMap.subscribe(params => {\n");
+            for (InputField inputField : analysis.inputFields) {
+                tsBuilder.append(indent).append(indent).append(indent).append("this.").append(inputField.fieldName).append(" = ")
+                        .append(QueryParamValue(inputField)).append(semicolon).append("\n");
+            }
+            tsBuilder.append(indent).append(indent).append("})").append(semicolon).append("\n");
+            tsBuilder.append(indent).append("}\n");
+        }
+        AddTrackByFunctions(tsBuilder, analysis.trackByFunctions);
+        tsBuilder.append("}\n");
+        return tsBuilder.toString();
+    }
+
+    private String QueryParamValue(InputField inputField) {
+        String value = "params.get(" + Quote(inputField.fieldName) + ")";
+        //the preview also renders fragments that aren't routable, their other types stay strings
+        if (inputField.fieldType == null) return value;
+        switch (inputField.fieldType) {
+            case "number":
+                return "Number(" + value + ")";
+            case "boolean":
+                return value + " === " + Quote("true");
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * A link to the lazily loaded route replacing the fragment, the inputs go along as query parameters.
+     */
+    public String RenderRouterLink(String componentHyphen, String routePath, TemplateAnalysis analysis) {
+        StringBuilder htmlBuilder = new StringBuilder();
+        htmlBuilder.append("<a routerLink=").append(QuoteAttribute(routePath));
+        if (!analysis.inputFields.isEmpty()) {
+            List<String> queryParams = new ArrayList<>();
+            for (InputField inputField : analysis.inputFields) {
+                queryParams.add(inputField.fieldName + ": " + inputField.originalBody);
+            }
+            htmlBuilder.append(" [queryParams]=").append(QuoteAttribute("{ " + String.join(", ", queryParams) + " }"));
+        }
+        htmlBuilder.append(">").append(StringUtil.capitalize(componentHyphen.replace('-', ' '))).append("</a>");
+        return htmlBuilder.toString();
+    }
+
+    /**
+     * The feature module owning the route to the component, with the pipes generated for it.
+     *
+     * @param formsModules FormsModule or ReactiveFormsModule when the fragment uses their directives
+     */
+    public String RenderFeatureModuleTs(String componentNameCamelCase, String componentHyphen, List<PipeDefinition> pipes,
+                                        Collection<String> formsModules) {
+        String componentClass = componentNameCamelCase + "Component";
+        List<String> declarations = new ArrayList<>();
+        declarations.add(componentClass);
+        StringBuilder tsBuilder = new StringBuilder();
+        tsBuilder.append(RenderImport(Collections.singletonList("NgModule"), "@angular/core")).append("\n");
+        tsBuilder.append(RenderImport(Collections.singletonList("CommonModule"), "@angular/common")).append("\n");
+        if (!formsModules.isEmpty()) tsBuilder.append(RenderImport(new ArrayList<>(formsModules), "@angular/forms")).append("\n");
+        tsBuilder.append(RenderImport(Collections.singletonList("RouterModule"), "@angular/router")).append("\n");
+        tsBuilder.append(RenderImport(Collections.singletonList(componentClass), "./" + componentHyphen + ".component")).append("\n");
+        for (PipeDefinition pipe : pipes) {
+            tsBuilder.append(RenderImport(Collections.singletonList(pipe.className), "./" + StringUtil.trimEnd(pipe.fileName, ".ts"))).append("\n");
+            declarations.add(pipe.className);
+        }
+        tsBuilder.append("\n");
+        tsBuilder.append("@NgModule({\n");
+        tsBuilder.append(indent).append("imports: [\n");
+        tsBuilder.append(indent).append(indent).append("CommonModule,\n");
+        for (String formsModule : formsModules) {
+            tsBuilder.append(indent).append(indent).append(formsModule).append(",\n");
+        }
+        tsBuilder.append(indent).append(indent).append("RouterModule.forChild([{ path: ").append(Quote("")).append(", component: ")
+                .append(componentClass).append(" }])\n");
+        tsBuilder.append(indent).append("],\n");
+        tsBuilder.append(indent).append("declarations: [").append(String.join(", ", declarations)).append("]\n");
+        tsBuilder.append("})\n");
+        tsBuilder.append("export class ").append(componentNameCamelCase).append("Module {\n");
+        tsBuilder.append("}\n");
+        return tsBuilder.toString();
+    }
+
+    /**
+     * A route entry in the string form of loadChildren, `./admin/admin.module#AdminModule`.
+     */
+    public String RenderLazyRoute(String routePath, String loadChildren) {
+        return "{ path: " + Quote(routePath) + ", loadChildren: " + Quote(loadChildren) + " }";
+    }
+
+    private void AddComponentDecorator(StringBuilder tsBuilder, String componentHyphen, boolean onPush, boolean hasStylesheet) {
+        tsBuilder.append("@Component({\n");
+        tsBuilder.append(indent).append("selector: ").append(Quote("app-" + componentHyphen)).append(",\n");
+        tsBuilder.append(indent).append("templateUrl: ").append(Quote("./" + componentHyphen + ".component.html")).append(",\n");
+        if (hasStylesheet) {
+            tsBuilder.append(indent).append("styleUrls: [").append(Quote("./" + componentHyphen + ".component.css")).append("]");
+        } else {
+            tsBuilder.append(indent).append("styles: []");
+        }
+        tsBuilder.append(onPush ? ",\n" : "\n");
+        if (onPush) tsBuilder.append(indent).append("changeDetection: ChangeDetectionStrategy.OnPush\n");
+        tsBuilder.append("})\n");
+    }
+
+    private void AddInputs(StringBuilder tsBuilder, List<InputField> inputFields, boolean onPush) {
+        for (InputField inputField : inputFields) {
+            ProgressManager.checkCanceled();
+            if (inputField.isTwoWay) {
+                tsBuilder.append(indent).append("@Output() ").append(inputField.fieldName).append("Change = new EventEmitter<")
+                        .append(inputField.fieldType == null ? "any" : inputField.fieldType).append(">()").append(semicolon).append("\n");
+            }
+            tsBuilder.append(indent).append("@Input() ");
+            if (onPush && !inputField.isTwoWay) tsBuilder.append("readonly ");
+            tsBuilder.append(inputField.fieldName);
+            if (inputField.fieldType != null) tsBuilder.append(": ").append(inputField.fieldType);
+            tsBuilder.append(semicolon).append("\n");
+        }
+    }
+
+    private void AddEvents(StringBuilder tsBuilder, List<OutputField> events) {
+        for (OutputField event : events) {
+            tsBuilder.append(indent).append("@Output(").append(Quote(event.eventName)).append(") ").append(event.eventName)
+                    .append("Event = new EventEmitter<void>()").append(semicolon).append("\n");
+        }
+        for (OutputField event : events) {
+            tsBuilder.append("\n");
+            tsBuilder.append(indent).append(event.eventName).append("() {\n");
+            tsBuilder.append(indent).append(indent).append("this.").append(event.eventName).append("Event.emit()").append(semicolon).append("\n");
+            tsBuilder.append(indent).append("}\n");
+        }
+    }
+
+    public String RenderComponentCss(MigratedStyles styles) {
+        List<String> rules = new ArrayList<>();
+        for (StyleRule rule : styles.rules) {
+            rules.add(rule.text);
+        }
+        return String.join("\n\n", rules) + "\n";
+    }
+
+    private void AddTrackByImports(StringBuilder tsBuilder, List<TrackByFunction> trackByFunctions, String directoryPath) {
+        Set<String> imports = new LinkedHashSet<>();
+        for (TrackByFunction trackBy : trackByFunctions) {
+            for (PipeDefinition.PipeImport itemImport : trackBy.itemImports) {
+                imports.add(RenderImport(itemImport, directoryPath));
+            }
+        }
+        for (String itemImport : imports) {
+            tsBuilder.append(itemImport).append("\n");
+        }
+    }
+
+    private void AddTrackByFunctions(StringBuilder tsBuilder, List<TrackByFunction> trackByFunctions) {
+        for (TrackByFunction trackBy : trackByFunctions) {
+            tsBuilder.append("\n");
+            tsBuilder.append(indent).append(trackBy.name).append("(index: number, item: ").append(trackBy.itemType).append("): ")
+                    .append(trackBy.keyType).append(" {\n");
+            tsBuilder.append(indent).append(indent).append("return item.").append(trackBy.keyName).append(semicolon).append("\n");
+            tsBuilder.append(indent).append("}\n");
+        }
+    }
+
+    /**
+     * @param directoryPath where the pipe file goes, relative imports of the component are rewritten against it
+     */
+    public String RenderPipeTs(PipeDefinition pipe, String directoryPath) {
+        StringBuilder tsBuilder = new StringBuilder();
+        tsBuilder.append(RenderImport(Arrays.asList("Pipe", "PipeTransform"), "@angular/core")).append("\n");
+        for (PipeDefinition.PipeImport pipeImport : pipe.imports) {
+            tsBuilder.append(RenderImport(pipeImport, directoryPath)).append("\n");
+        }
+        tsBuilder.append("\n");
+        tsBuilder.append("@Pipe({\n");
+        tsBuilder.append(indent).append("name: ").append(Quote(pipe.pipeName)).append("\n");
+        tsBuilder.append("})\n");
+        tsBuilder.append("export class ").append(pipe.className).append(" implements PipeTransform {\n");
+        tsBuilder.append(indent).append("transform").append(pipe.parametersText);
+        if (pipe.returnType != null) tsBuilder.append(": ").append(pipe.returnType);
+        tsBuilder.append(" ").append(pipe.bodyText).append("\n");
+        tsBuilder.append("}\n");
+        return tsBuilder.toString();
+    }
+
+    /**
+     * @param directoryPath where the importing file goes, a relative import is made relative to it
+     */
+    private String RenderImport(PipeDefinition.PipeImport pipeImport, String directoryPath) {
+        String modulePath = pipeImport.modulePath;
+        if (pipeImport.isRelative) {
+            String relativePath = FileUtil.getRelativePath(directoryPath, modulePath, '/');
+            if (relativePath != null) modulePath = relativePath.startsWith(".") ? relativePath : "./" + relativePath;
+        }
+        return RenderImport(pipeImport.names, modulePath);
+    }
+
+    public String RenderImport(List<String> names, String modulePath) {
+        return "import {" + importBracesPadding + String.join(", ", names) + importBracesPadding + "} from " + Quote(modulePath) + semicolon;
+    }
+
+    /**
+     * Uses the attribute quote of the HTML code style unless the value contains it, bindings often hold string literals.
+     */
+    public String QuoteAttribute(String value) {
+        char attributeQuote = value.indexOf(htmlQuote) < 0 ? htmlQuote : htmlQuote == '"' ? '\'' : '"';
+        return attributeQuote + value + attributeQuote;
+    }
+
+    private String Quote(String text) {
+        return quote + text + quote;
+    }
+}
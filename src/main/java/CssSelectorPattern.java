@@ -0,0 +1,195 @@
+import com.intellij.psi.css.*;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A selector made of compounds joined by descendant or child combinators, matched right to left against template tags.
+ * Pseudo classes and attribute conditions are not checked, a rule using them is assumed to apply when the rest matches.
+ */
+public class CssSelectorPattern {
+    private final List<Compound> compounds;
+    /**
+     * The combinator in front of each compound but the first, ' ' or '>'.
+     */
+    private final List<Character> combinators;
+    public final String text;
+
+    private CssSelectorPattern(List<Compound> compounds, List<Character> combinators, String text) {
+        this.compounds = compounds;
+        this.combinators = combinators;
+        this.text = text;
+    }
+
+    /**
+     * @return null for selectors that can't be matched against a single template, sibling combinators
+     * or anything reaching across the component boundary like :host and ::ng-deep
+     */
+    public static @Nullable CssSelectorPattern Parse(CssSelector selector) {
+        String selectorText = selector.getText();
+        if (selectorText.contains(":host") || selectorText.contains("ng-deep") || selectorText.contains("/deep/")
+                || selectorText.contains(">>>")) {
+            return null;
+        }
+        CssSimpleSelector[] simpleSelectors = selector.getSimpleSelectors();
+        if (simpleSelectors.length == 0) return null;
+        List<Compound> compounds = new ArrayList<>();
+        List<Character> combinators = new ArrayList<>();
+        int previousEnd = -1;
+        for (CssSimpleSelector simpleSelector : simpleSelectors) {
+            int start = simpleSelector.getTextRange().getStartOffset() - selector.getTextRange().getStartOffset();
+            if (previousEnd >= 0) {
+                String combinator = selectorText.substring(previousEnd, start).trim();
+                if (combinator.isEmpty()) {
+                    combinators.add(' ');
+                } else if (combinator.equals(">")) {
+                    combinators.add('>');
+                } else {
+                    return null;
+                }
+            }
+            compounds.add(Compound.Parse(simpleSelector));
+            previousEnd = simpleSelector.getTextRange().getEndOffset() - selector.getTextRange().getStartOffset();
+        }
+        return new CssSelectorPattern(compounds, combinators, selectorText.trim());
+    }
+
+    /**
+     * The most specific part of the rightmost compound, an element can only match when it has that id, class or tag.
+     */
+    public String Key() {
+        Compound subject = compounds.get(compounds.size() - 1);
+        if (!subject.ids.isEmpty()) return "#" + subject.ids.get(0);
+        if (!subject.classes.isEmpty()) return "." + subject.classes.get(0);
+        if (subject.tagName != null) return subject.tagName;
+        return "*";
+    }
+
+    /**
+     * @return the keys of every selector that could match the tag
+     */
+    public static List<String> Keys(XmlTag tag) {
+        List<String> keys = new ArrayList<>();
+        String id = tag.getAttributeValue("id");
+        if (id != null) keys.add("#" + id);
+        for (String className : Classes(tag)) {
+            keys.add("." + className);
+        }
+        keys.add(TagName(tag));
+        keys.add("*");
+        return keys;
+    }
+
+    /**
+     * @param inScope whether an ancestor may take part in the match, the walk up stops at the first one that may not
+     */
+    public boolean Matches(XmlTag tag, Predicate<XmlTag> inScope) {
+        return MatchesFrom(0, tag, inScope);
+    }
+
+    /**
+     * The selector for a component whose host sits inside the element the first compound matched outside the scope,
+     * `.list .item` becomes `:host-context(.list) .item`.
+     *
+     * @return null unless the rest of the selector matches the tag within the scope and the first compound is joined
+     * by a descendant combinator, a child combinator or more compounds outside can't be said with :host-context
+     */
+    public @Nullable String HostContextSelector(XmlTag tag, Predicate<XmlTag> inScope) {
+        if (compounds.size() < 2 || combinators.get(0) != ' ' || !MatchesFrom(1, tag, inScope)) return null;
+        StringBuilder selector = new StringBuilder(":host-context(").append(compounds.get(0).text).append(")");
+        for (int i = 1; i < compounds.size(); i++) {
+            selector.append(combinators.get(i - 1) == '>' ? " > " : " ").append(compounds.get(i).text);
+        }
+        return selector.toString();
+    }
+
+    private boolean MatchesFrom(int first, XmlTag tag, Predicate<XmlTag> inScope) {
+        int subject = compounds.size() - 1;
+        return compounds.get(subject).Matches(tag) && MatchesAncestors(ParentElement(tag, inScope), subject - 1, first, inScope);
+    }
+
+    private boolean MatchesAncestors(@Nullable XmlTag tag, int index, int first, Predicate<XmlTag> inScope) {
+        if (index < first) return true;
+        boolean isChild = combinators.get(index) == '>';
+        for (XmlTag ancestor = tag; ancestor != null; ancestor = ParentElement(ancestor, inScope)) {
+            if (compounds.get(index).Matches(ancestor) && MatchesAncestors(ParentElement(ancestor, inScope), index - 1, first, inScope)) {
+                return true;
+            }
+            if (isChild) return false;
+        }
+        return false;
+    }
+
+    /**
+     * ng-container and ng-template don't render an element, their children are children of the tag around them.
+     */
+    private static @Nullable XmlTag ParentElement(XmlTag tag, Predicate<XmlTag> inScope) {
+        XmlTag parent = tag.getParentTag();
+        while (parent != null && IsVirtual(parent)) parent = parent.getParentTag();
+        return parent != null && inScope.test(parent) ? parent : null;
+    }
+
+    public static boolean IsVirtual(XmlTag tag) {
+        return "ng-container".equals(tag.getName()) || "ng-template".equals(tag.getName());
+    }
+
+    private static String TagName(XmlTag tag) {
+        return tag.getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Static classes and the ones toggled by [class.name] bindings, the ones set through [ngClass] aren't known.
+     */
+    private static Set<String> Classes(XmlTag tag) {
+        Set<String> classes = new LinkedHashSet<>();
+        for (XmlAttribute attribute : tag.getAttributes()) {
+            String name = attribute.getName();
+            if ("class".equals(name) && attribute.getValue() != null) {
+                for (String className : attribute.getValue().trim().split("\\s+")) {
+                    if (!className.isEmpty()) classes.add(className);
+                }
+            } else if (name.startsWith("[class.") && name.endsWith("]")) {
+                classes.add(name.substring("[class.".length(), name.length() - 1));
+            }
+        }
+        return classes;
+    }
+
+    private static class Compound {
+        final @Nullable String tagName;
+        final List<String> ids = new ArrayList<>();
+        final List<String> classes = new ArrayList<>();
+        final String text;
+
+        private Compound(@Nullable String tagName, String text) {
+            this.tagName = tagName;
+            this.text = text;
+        }
+
+        static Compound Parse(CssSimpleSelector simpleSelector) {
+            String elementName = simpleSelector.getElementName();
+            boolean anyTag = elementName == null || elementName.isEmpty() || "*".equals(elementName);
+            Compound compound = new Compound(anyTag ? null : elementName.toLowerCase(Locale.ROOT), simpleSelector.getText());
+            for (CssSelectorSuffix suffix : simpleSelector.getSelectorSuffixes()) {
+                if (suffix instanceof CssIdSelector) {
+                    compound.ids.add(((CssIdSelector) suffix).getName());
+                } else if (suffix instanceof CssClass) {
+                    compound.classes.add(((CssClass) suffix).getName());
+                }
+            }
+            return compound;
+        }
+
+        boolean Matches(XmlTag tag) {
+            if (tagName != null && !tagName.equals(TagName(tag))) return false;
+            for (String id : ids) {
+                if (!id.equals(tag.getAttributeValue("id"))) return false;
+            }
+            if (classes.isEmpty()) return true;
+            return Classes(tag).containsAll(classes);
+        }
+    }
+}
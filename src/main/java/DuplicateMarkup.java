@@ -0,0 +1,48 @@
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markup with the same structure found in more than one place.
+ */
+public class DuplicateMarkup {
+    public final int structureHash;
+    public final int elementCount;
+    public final List<Occurrence> occurrences = new ArrayList<>();
+
+    public DuplicateMarkup(int structureHash, int elementCount) {
+        this.structureHash = structureHash;
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * Bigger fragments repeated more often save the most markup when extracted.
+     */
+    public int Score() {
+        return elementCount * occurrences.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(occurrences.size()).append(" × ").append(elementCount).append(" elements in ");
+        for (int i = 0; i < occurrences.size() && i < 3; i++) {
+            if (i > 0) text.append(", ");
+            text.append(occurrences.get(i).file.getName());
+        }
+        if (occurrences.size() > 3) text.append(", …");
+        return text.toString();
+    }
+
+    public static class Occurrence {
+        public final VirtualFile file;
+        public final TextRange range;
+
+        public Occurrence(VirtualFile file, TextRange range) {
+            this.file = file;
+            this.range = range;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+
+import java.util.*;
+
+/**
+ * Answers duplicate markup questions from {@link DuplicateMarkupIndex} alone, no template is parsed.
+ */
+public class DuplicateMarkupFinder {
+    /**
+     * @return repeated markup ranked by {@link DuplicateMarkup#Score()}, fragments only ever found inside a better
+     * ranked one are left out
+     */
+    public static List<DuplicateMarkup> FindDuplicates(Project project) {
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        List<DuplicateMarkup> duplicates = new ArrayList<>();
+        for (Integer structureHash : FileBasedIndex.getInstance().getAllKeys(DuplicateMarkupIndex.NAME, project)) {
+            ProgressManager.checkCanceled();
+            DuplicateMarkup duplicate = FindOccurrences(structureHash, scope);
+            if (duplicate != null && duplicate.occurrences.size() > 1) duplicates.add(duplicate);
+        }
+        duplicates.sort(Comparator.comparingInt(DuplicateMarkup::Score).reversed());
+        return WithoutNested(duplicates);
+    }
+
+    public static DuplicateMarkup FindOccurrences(int structureHash, GlobalSearchScope scope) {
+        DuplicateMarkup[] duplicate = new DuplicateMarkup[1];
+        FileBasedIndex.getInstance().processValues(DuplicateMarkupIndex.NAME, structureHash, null, (file, triples) -> {
+            if (duplicate[0] == null) duplicate[0] = new DuplicateMarkup(structureHash, triples[2]);
+            for (int i = 0; i < triples.length; i += 3) {
+                duplicate[0].occurrences.add(new DuplicateMarkup.Occurrence(file, new TextRange(triples[i], triples[i + 1])));
+            }
+            return true;
+        }, scope);
+        return duplicate[0];
+    }
+
+    private static List<DuplicateMarkup> WithoutNested(List<DuplicateMarkup> rankedDuplicates) {
+        Map<VirtualFile, List<TextRange>> kept = new HashMap<>();
+        List<DuplicateMarkup> result = new ArrayList<>();
+        for (DuplicateMarkup duplicate : rankedDuplicates) {
+            boolean nested = duplicate.occurrences.stream().allMatch(occurrence ->
+                    kept.getOrDefault(occurrence.file, Collections.emptyList()).stream().anyMatch(range -> range.contains(occurrence.range)));
+            if (nested) continue;
+            result.add(duplicate);
+            for (DuplicateMarkup.Occurrence occurrence : duplicate.occurrences) {
+                kept.computeIfAbsent(occurrence.file, file -> new ArrayList<>()).add(occurrence.range);
+            }
+        }
+        return result;
+    }
+}
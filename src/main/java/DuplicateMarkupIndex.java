@@ -0,0 +1,89 @@
+import com.intellij.ide.highlighter.HtmlFileType;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the structure hash of every element subtree with at least {@link #MIN_ELEMENT_COUNT} elements to where it occurs
+ * in a template, as start offset, end offset and element count triples.
+ */
+public class DuplicateMarkupIndex extends FileBasedIndexExtension<Integer, int[]> {
+    public static final ID<Integer, int[]> NAME = ID.create("AngularExtractComponent.DuplicateMarkup");
+    public static final int MIN_ELEMENT_COUNT = 3;
+
+    @NotNull
+    @Override
+    public ID<Integer, int[]> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<Integer, int[], FileContent> getIndexer() {
+        return inputData -> {
+            List<MarkupFragment> fragments = TemplateStructureHasher.Hash(inputData.getContentAsText(), MIN_ELEMENT_COUNT);
+            Map<Integer, int[]> occurrences = new HashMap<>();
+            for (MarkupFragment fragment : fragments) {
+                int[] previous = occurrences.get(fragment.structureHash);
+                int[] triples = previous == null ? new int[3] : Arrays.copyOf(previous, previous.length + 3);
+                triples[triples.length - 3] = fragment.startOffset;
+                triples[triples.length - 2] = fragment.endOffset;
+                triples[triples.length - 1] = fragment.elementCount;
+                occurrences.put(fragment.structureHash, triples);
+            }
+            return occurrences;
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<Integer> getKeyDescriptor() {
+        return EnumeratorIntegerDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<int[]> getValueExternalizer() {
+        return new DataExternalizer<int[]>() {
+            @Override
+            public void save(@NotNull DataOutput out, int[] value) throws IOException {
+                DataInputOutputUtil.writeINT(out, value.length);
+                for (int i : value) DataInputOutputUtil.writeINT(out, i);
+            }
+
+            @Override
+            public int[] read(@NotNull DataInput in) throws IOException {
+                int[] value = new int[DataInputOutputUtil.readINT(in)];
+                for (int i = 0; i < value.length; i++) value[i] = DataInputOutputUtil.readINT(in);
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(HtmlFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
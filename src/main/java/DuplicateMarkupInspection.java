@@ -0,0 +1,84 @@
+import com.intellij.codeInspection.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports markup that is repeated elsewhere in the project and offers to extract it into a component.
+ */
+public class DuplicateMarkupInspection extends LocalInspectionTool {
+    @Nullable
+    @Override
+    public ProblemDescriptor[] checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager, boolean isOnTheFly) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (virtualFile == null) return null;
+        Project project = file.getProject();
+        Map<Integer, int[]> fragments = FileBasedIndex.getInstance().getFileData(DuplicateMarkupIndex.NAME, virtualFile, project);
+        if (fragments.isEmpty()) return null;
+
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        List<Map.Entry<Integer, int[]>> largestFirst = new ArrayList<>(fragments.entrySet());
+        //reported fragments hide the ones nested in them
+        largestFirst.sort((o1, o2) -> Integer.compare(o2.getValue()[2], o1.getValue()[2]));
+        List<TextRange> reported = new ArrayList<>();
+        List<ProblemDescriptor> problems = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> fragment : largestFirst) {
+            DuplicateMarkup duplicate = DuplicateMarkupFinder.FindOccurrences(fragment.getKey(), scope);
+            if (duplicate == null || duplicate.occurrences.size() < 2) continue;
+            int[] triples = fragment.getValue();
+            for (int i = 0; i < triples.length; i += 3) {
+                TextRange range = new TextRange(triples[i], triples[i + 1]);
+                if (reported.stream().anyMatch(reportedRange -> reportedRange.contains(range))) continue;
+                XmlTag tag = FindTag(file, range);
+                if (tag == null) continue;
+                reported.add(range);
+                problems.add(manager.createProblemDescriptor(tag,
+                        "Markup repeated " + duplicate.occurrences.size() + " times in the project, it could be a component",
+                        isOnTheFly, new LocalQuickFix[]{new ExtractDuplicateFix()}, ProblemHighlightType.WEAK_WARNING));
+            }
+        }
+        return problems.toArray(ProblemDescriptor.EMPTY_ARRAY);
+    }
+
+    /**
+     * The index may lag behind the editor, a range that no longer covers a tag is skipped.
+     */
+    private static @Nullable XmlTag FindTag(PsiFile file, TextRange range) {
+        if (range.getEndOffset() > file.getTextLength()) return null;
+        PsiElement element = file.findElementAt(range.getStartOffset());
+        XmlTag tag = PsiTreeUtil.getParentOfType(element, XmlTag.class);
+        return tag != null && tag.getTextRange().equals(range) ? tag : null;
+    }
+
+    private static class ExtractDuplicateFix implements LocalQuickFix {
+        @NotNull
+        @Override
+        public String getFamilyName() {
+            return "Extract component";
+        }
+
+        @Override
+        public boolean startInWriteAction() {
+            return false;
+        }
+
+        @Override
+        public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
+            PsiElement tag = descriptor.getPsiElement();
+            if (tag == null) return;
+            new ExtractComponentHandler().invoke(project, new PsiElement[]{tag}, null);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import com.intellij.ide.DataManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Lists repeated markup of the whole project, best candidates first. Double click shows the first occurrence,
+ * Extract opens it selected and starts extracting it.
+ */
+public class DuplicateMarkupToolWindowFactory implements ToolWindowFactory, DumbAware {
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        CollectionListModel<DuplicateMarkup> model = new CollectionListModel<>();
+        JBList<DuplicateMarkup> list = new JBList<>(model);
+        list.setEmptyText("Refresh to find repeated markup");
+
+        JButton refresh = new JButton("Refresh");
+        refresh.addActionListener(e -> Refresh(project, model));
+        JButton extract = new JButton("Extract");
+        extract.addActionListener(e -> {
+            DuplicateMarkup selected = list.getSelectedValue();
+            if (selected != null) Extract(project, selected.occurrences.get(0));
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                DuplicateMarkup selected = list.getSelectedValue();
+                if (e.getClickCount() == 2 && selected != null) Open(project, selected.occurrences.get(0));
+            }
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(refresh);
+        buttons.add(extract);
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(buttons, BorderLayout.NORTH);
+        panel.add(new JBScrollPane(list), BorderLayout.CENTER);
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+        toolWindow.getContentManager().addContent(content);
+    }
+
+    private static void Refresh(Project project, CollectionListModel<DuplicateMarkup> model) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Finding Repeated Markup", true) {
+            private List<DuplicateMarkup> duplicates;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                duplicates = DumbService.getInstance(project).runReadActionInSmartMode(() -> DuplicateMarkupFinder.FindDuplicates(project));
+            }
+
+            @Override
+            public void onSuccess() {
+                model.replaceAll(duplicates);
+            }
+        });
+    }
+
+    private static Editor Open(Project project, DuplicateMarkup.Occurrence occurrence) {
+        if (!occurrence.file.isValid()) return null;
+        return FileEditorManager.getInstance(project)
+                .openTextEditor(new OpenFileDescriptor(project, occurrence.file, occurrence.range.getStartOffset()), true);
+    }
+
+    private static void Extract(Project project, DuplicateMarkup.Occurrence occurrence) {
+        Editor editor = Open(project, occurrence);
+        if (editor == null || occurrence.range.getEndOffset() > editor.getDocument().getTextLength()) return;
+        PsiFile file = PsiDocumentManager.getInstance(project).getPsiFile(editor.getDocument());
+        if (file == null) return;
+        editor.getSelectionModel().setSelection(occurrence.range.getStartOffset(), occurrence.range.getEndOffset());
+        new ExtractComponentHandler().invoke(project, editor, file, DataManager.getInstance().getDataContext(editor.getComponent()));
+    }
+}
@@ -1,7 +1,7 @@
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
-import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.psi.PsiElement;
@@ -14,13 +14,10 @@ public class ExtractComponentAction extends AnAction {
         Project currentProject = anActionEvent.getProject();
         String componentNameCamelCase = Messages.showInputDialog(currentProject, "Component name (in upper camel case)", "Component Name", Messages.getQuestionIcon());
         if (componentNameCamelCase == null) return;
-        WriteCommandAction.runWriteCommandAction(currentProject, () -> {
-            Project project = anActionEvent.getProject();
-            if (project == null) return;
-            PsiElement element = anActionEvent.getData(CommonDataKeys.PSI_ELEMENT);
-            RefactorHelper refactorHelper = new RefactorHelper(project, element);
-            refactorHelper.DoRefactor(componentNameCamelCase);
-        });
+        if (currentProject == null) return;
+        PsiElement element = anActionEvent.getData(CommonDataKeys.PSI_ELEMENT);
+        if (element == null) return;
+        ProgressManager.getInstance().run(new ExtractComponentTask(currentProject, new PsiElement[]{element}, componentNameCamelCase));
     }
 
 
@@ -0,0 +1,80 @@
+import com.intellij.openapi.options.Configurable;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+public class ExtractComponentConfigurable implements Configurable {
+    private JCheckBox reformatGeneratedFiles;
+    private JCheckBox declareInNgModule;
+    private JCheckBox onPushChangeDetection;
+    private JCheckBox generatePurePipes;
+    private JCheckBox migrateStyles;
+    private JBIntSpinner parallelResolveThreshold;
+    private JBIntSpinner analysisTimeBudgetMs;
+
+    @Nls
+    @Override
+    public String getDisplayName() {
+        return "Angular Extract Component";
+    }
+
+    @Override
+    public @Nullable JComponent createComponent() {
+        reformatGeneratedFiles = new JCheckBox("Reformat generated files");
+        declareInNgModule = new JCheckBox("Declare the new component in the NgModule of the source component");
+        onPushChangeDetection = new JCheckBox("Use OnPush change detection when the fragment doesn't write to its inputs");
+        generatePurePipes = new JCheckBox("Turn side effect free component methods into pure pipes");
+        migrateStyles = new JCheckBox("Move the parent's style rules for the fragment, copy the ones it still uses");
+        parallelResolveThreshold = new JBIntSpinner(64, 1, 100_000);
+        analysisTimeBudgetMs = new JBIntSpinner(30_000, 0, 3_600_000, 1_000);
+        return FormBuilder.createFormBuilder()
+                .addComponent(reformatGeneratedFiles)
+                .addComponent(declareInNgModule)
+                .addComponent(onPushChangeDetection)
+                .addComponent(generatePurePipes)
+                .addComponent(migrateStyles)
+                .addLabeledComponent("Resolve bindings in parallel from this many bindings:", parallelResolveThreshold)
+                .addLabeledComponent("Analysis time budget in milliseconds (0 for none):", analysisTimeBudgetMs)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        return reformatGeneratedFiles.isSelected() != settings.reformatGeneratedFiles ||
+                declareInNgModule.isSelected() != settings.declareInNgModule ||
+                onPushChangeDetection.isSelected() != settings.onPushChangeDetection ||
+                generatePurePipes.isSelected() != settings.generatePurePipes ||
+                migrateStyles.isSelected() != settings.migrateStyles ||
+                parallelResolveThreshold.getNumber() != settings.parallelResolveThreshold ||
+                analysisTimeBudgetMs.getNumber() != settings.analysisTimeBudgetMs;
+    }
+
+    @Override
+    public void apply() {
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        settings.reformatGeneratedFiles = reformatGeneratedFiles.isSelected();
+        settings.declareInNgModule = declareInNgModule.isSelected();
+        settings.onPushChangeDetection = onPushChangeDetection.isSelected();
+        settings.generatePurePipes = generatePurePipes.isSelected();
+        settings.migrateStyles = migrateStyles.isSelected();
+        settings.parallelResolveThreshold = parallelResolveThreshold.getNumber();
+        settings.analysisTimeBudgetMs = analysisTimeBudgetMs.getNumber();
+    }
+
+    @Override
+    public void reset() {
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        reformatGeneratedFiles.setSelected(settings.reformatGeneratedFiles);
+        declareInNgModule.setSelected(settings.declareInNgModule);
+        onPushChangeDetection.setSelected(settings.onPushChangeDetection);
+        generatePurePipes.setSelected(settings.generatePurePipes);
+        migrateStyles.setSelected(settings.migrateStyles);
+        parallelResolveThreshold.setNumber(settings.parallelResolveThreshold);
+        analysisTimeBudgetMs.setNumber(settings.analysisTimeBudgetMs);
+    }
+}
@@ -1,6 +1,8 @@
 import com.intellij.openapi.actionSystem.DataContext;
-import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Caret;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.psi.PsiElement;
@@ -16,9 +18,25 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class ExtractComponentHandler implements RefactoringActionHandler, ElementsHandler {
+    private final Supplier<ExtractionMetrics> metricsFactory;
+
+    public ExtractComponentHandler() {
+        this(ExtractionMetrics::new);
+    }
+
+    /**
+     * @param metricsFactory creates the metrics of every invocation, lets the performance suite read the phases of a run
+     */
+    ExtractComponentHandler(Supplier<ExtractionMetrics> metricsFactory) {
+        this.metricsFactory = metricsFactory;
+    }
+
     @Override
     public boolean isEnabledOnElements(PsiElement[] elements) {
         return Arrays.stream(elements).allMatch(psiElement -> psiElement.getLanguage().is(Angular2HtmlLanguage.INSTANCE));
@@ -26,32 +44,89 @@ public class ExtractComponentHandler implements RefactoringActionHandler, Elemen
 
     @Override
     public void invoke(@NotNull Project project, Editor editor, PsiFile file, DataContext dataContext) {
-        String selectedText = editor.getSelectionModel().getSelectedText();
-        if (StringUtils.isBlank(selectedText)) return;
+        List<Caret> carets = editor.getCaretModel().getAllCarets().stream().filter(Caret::hasSelection).collect(Collectors.toList());
+        if (carets.size() > 1) {
+            InvokeForCarets(project, editor, file, carets);
+            return;
+        }
+        SelectionModel selectionModel = editor.getSelectionModel();
+        ExtractionMetrics metrics = metricsFactory.get();
+        PsiElement[] elements = metrics.Time(ExtractionMetrics.SELECTION, () -> FindSelectedElements(project, editor, file,
+                selectionModel.getSelectionStart(), selectionModel.getSelectionEnd(), selectionModel.getSelectedText()));
+        if (elements == null) return;
+
+        invoke(project, elements, metrics);
+    }
+
+    private void InvokeForCarets(@NotNull Project project, Editor editor, PsiFile file, List<Caret> carets) {
+        ExtractionMetrics metrics = metricsFactory.get();
+        List<PsiElement[]> selections = new ArrayList<>();
+        for (Caret caret : carets) {
+            PsiElement[] elements = metrics.Time(ExtractionMetrics.SELECTION, () -> FindSelectedElements(project, editor, file,
+                    caret.getSelectionStart(), caret.getSelectionEnd(), caret.getSelectedText()));
+            if (elements == null) return;
+            selections.add(elements);
+        }
+        selections.sort(Comparator.comparingInt(elements -> elements[0].getTextRange().getStartOffset()));
+        for (int i = 1; i < selections.size(); i++) {
+            PsiElement[] previous = selections.get(i - 1);
+            if (previous[previous.length - 1].getTextRange().getEndOffset() > selections.get(i)[0].getTextRange().getStartOffset()) {
+                String message = RefactoringBundle.getCannotRefactorMessage("Selections overlap");
+                CommonRefactoringUtil.showErrorHint(project, editor, message, "Extract Component", null);
+                return;
+            }
+        }
+
+        ExtractComponentsDialog dialog = new ExtractComponentsDialog(project, selections);
+        if (!dialog.showAndGet()) return;
+        List<String> names = dialog.GetComponentNames();
+        List<ExtractionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < selections.size(); i++) {
+            requests.add(new ExtractionRequest(selections.get(i), names.get(i)));
+        }
+        ProgressManager.getInstance().run(new ExtractComponentTask(project, requests, metrics));
+    }
+
+    @Nullable PsiElement[] FindSelectedElements(@NotNull Project project, Editor editor, PsiFile file,
+                                                int selectionStart, int selectionEndOffset, String selectedText) {
+        if (StringUtils.isBlank(selectedText)) return null;
+        PsiElement[] elements = FindElementsInRange(file, selectionStart, selectionEndOffset, selectedText);
+        if (elements == null) {
+            String message = RefactoringBundle
+                    .getCannotRefactorMessage("Invalid Position");
+            CommonRefactoringUtil.showErrorHint(project, editor, message, "Extract Component", null);
+            return null;
+        }
+        if (!CommonRefactoringUtil.checkReadOnlyStatus(project, elements[0])) return null;
+        return elements;
+    }
+
+    /**
+     * The sibling elements covering the selection once surrounding whitespace is trimmed, without any UI.
+     *
+     * @return null when the selection doesn't start and end on elements that can be extracted
+     */
+    static @Nullable PsiElement[] FindElementsInRange(PsiFile file, int selectionStart, int selectionEndOffset, String selectedText) {
         String selectedWithoutWhitespace = selectedText.trim();
+        if (selectedWithoutWhitespace.isEmpty()) return null;
         int startingWhitespace = selectedText.indexOf(selectedWithoutWhitespace);
         int endingWhitespace = Math.max(selectedText.length() - selectedWithoutWhitespace.length() - startingWhitespace, 0);
 
-        PsiElement startElement = file.findElementAt(editor.getSelectionModel().getSelectionStart() + startingWhitespace);
-        if (startElement == null) return;
+        PsiElement startElement = file.findElementAt(selectionStart + startingWhitespace);
+        if (startElement == null) return null;
         startElement = FindTopParentAtSameOffset(startElement);
-        int selectionEnd = editor.getSelectionModel().getSelectionEnd() - (endingWhitespace + 1);
+        int selectionEnd = selectionEndOffset - (endingWhitespace + 1);
         PsiElement endElement = file.findElementAt(selectionEnd);
-        if (endElement == null) return;
+        if (endElement == null) return null;
         endElement = FindTopParentAtSameOffsetFromEnd(endElement);
 
         if (startElement == null || startElement instanceof PsiFile || startElement.getTextOffset() > selectionEnd) {
-            String message = RefactoringBundle
-                    .getCannotRefactorMessage("Invalid Position");
-            CommonRefactoringUtil.showErrorHint(project, editor, message, "Extract Component", null);
-            return;
+            return null;
         }
-        if (!CommonRefactoringUtil.checkReadOnlyStatus(project, startElement)) return;
-
-        invoke(project, FindAllSiblings(startElement, endElement).toArray(new PsiElement[0]), dataContext);
+        return FindAllSiblings(startElement, endElement).toArray(new PsiElement[0]);
     }
 
-    private List<PsiElement> FindAllSiblings(PsiElement startElement, @Nullable PsiElement endElement) {
+    private static List<PsiElement> FindAllSiblings(PsiElement startElement, @Nullable PsiElement endElement) {
         List<PsiElement> elements = new ArrayList<>();
         elements.add(startElement);
         if (endElement == null) return elements;
@@ -65,14 +140,14 @@ public class ExtractComponentHandler implements RefactoringActionHandler, Elemen
         return elements;
     }
 
-    private PsiElement FindTopParentAtSameOffset(PsiElement psiElement) {
+    private static PsiElement FindTopParentAtSameOffset(PsiElement psiElement) {
         int textOffset = psiElement.getTextOffset();
         while (psiElement.getParent().getTextOffset() == textOffset) {
             psiElement = psiElement.getParent();
         }
         return psiElement;
     }
-    private PsiElement FindTopParentAtSameOffsetFromEnd(PsiElement psiElement) {
+    private static PsiElement FindTopParentAtSameOffsetFromEnd(PsiElement psiElement) {
         int textOffset = psiElement.getTextOffset() + psiElement.getTextLength();
         PsiElement parent = psiElement.getParent();
         while (parent != null && parent.getTextOffset() + parent.getTextLength() == textOffset) {
@@ -84,10 +159,12 @@ public class ExtractComponentHandler implements RefactoringActionHandler, Elemen
 
     @Override
     public void invoke(@NotNull Project project, @NotNull PsiElement[] elements, DataContext dataContext) {
+        invoke(project, elements, metricsFactory.get());
+    }
+
+    private void invoke(@NotNull Project project, @NotNull PsiElement[] elements, ExtractionMetrics metrics) {
         String componentNameCamelCase = Messages.showInputDialog(project, "Component name (in upper camel case)", "Component Name", Messages.getQuestionIcon());
         if (componentNameCamelCase == null) return;
-        WriteCommandAction.runWriteCommandAction(project, () -> {
-            new RefactorHelper(project, elements).DoRefactor(componentNameCamelCase);
-        });
+        ProgressManager.getInstance().run(new ExtractComponentTask(project, elements, componentNameCamelCase, metrics));
     }
 }
@@ -0,0 +1,75 @@
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.refactoring.util.CommonRefactoringUtil;
+import com.intellij.util.IncorrectOperationException;
+import org.angular2.lang.html.Angular2HtmlLanguage;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+
+/**
+ * Extracts the selected markup with a preview of the generated component.
+ */
+public class ExtractComponentIntention implements IntentionAction {
+    private static final Logger LOG = Logger.getInstance(ExtractComponentIntention.class);
+
+    @Nls
+    @NotNull
+    @Override
+    public String getText() {
+        return "Extract Angular component";
+    }
+
+    @Nls
+    @NotNull
+    @Override
+    public String getFamilyName() {
+        return getText();
+    }
+
+    @Override
+    public boolean isAvailable(@NotNull Project project, Editor editor, PsiFile file) {
+        return editor != null && editor.getSelectionModel().hasSelection() && file.getLanguage().is(Angular2HtmlLanguage.INSTANCE);
+    }
+
+    @Override
+    public void invoke(@NotNull Project project, Editor editor, PsiFile file) throws IncorrectOperationException {
+        SelectionModel selectionModel = editor.getSelectionModel();
+        PsiElement[] elements = new ExtractComponentHandler().FindSelectedElements(project, editor, file,
+                selectionModel.getSelectionStart(), selectionModel.getSelectionEnd(), selectionModel.getSelectedText());
+        if (elements == null) return;
+
+        ExtractComponentPreviewDialog dialog = new ExtractComponentPreviewDialog(project, elements);
+        if (!dialog.showAndGet()) return;
+        ExtractionPlan plan = dialog.PreviewedPlan();
+        if (plan == null) {
+            //the analysis is cached already, only the rendering for the final name is left
+            ExtractionRequest request = new ExtractionRequest(elements, dialog.ComponentName(), dialog.IsLazyModule());
+            ProgressManager.getInstance().run(new ExtractComponentTask(project, Collections.singletonList(request), new ExtractionMetrics()));
+            return;
+        }
+        try {
+            WriteCommandAction.runWriteCommandAction(project, "Extract Component", null,
+                    () -> new RefactorHelper(project).Apply(Collections.singletonList(plan)));
+            ExtractComponentTask.NotifyWarnings(project, Collections.singletonList(plan));
+        } catch (IncorrectOperationException e) {
+            CommonRefactoringUtil.showErrorMessage("Extract Component", e.getMessage(), null, project);
+        } catch (RuntimeException e) {
+            LOG.error(e);
+            CommonRefactoringUtil.showErrorMessage("Extract Component", "The extraction failed and was rolled back: " + e.getMessage(), null, project);
+        }
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return false;
+    }
+}
@@ -0,0 +1,160 @@
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.Alarm;
+import com.intellij.util.ui.FormBuilder;
+import com.intellij.util.ui.UIUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import java.awt.*;
+
+/**
+ * Asks for the component name while showing what would be generated for it: the invocation replacing the selection
+ * and the component class with its inputs, outputs and their types. For a lazily loaded feature module it also shows
+ * which inputs go along as query parameters and what can't cross the route. The preview is rendered in the background
+ * once typing pauses, the analysis behind it is only computed once. A newer preview or closing the dialog cancels the
+ * one being rendered, and a write action restarts it instead of waiting for it.
+ */
+public class ExtractComponentPreviewDialog extends DialogWrapper {
+    private static final int PREVIEW_DELAY_MS = 300;
+    private static final String PLACEHOLDER_NAME = "NewComponent";
+
+    private final Project project;
+    private final PsiElement[] elements;
+    private final JBTextField nameField = new JBTextField();
+    private final JCheckBox lazyModuleCheckBox = new JCheckBox("Extract into a lazily loaded feature module");
+    private final JBTextArea preview = new JBTextArea(16, 80);
+    private final Alarm previewAlarm;
+    private ProgressIndicator previewIndicator = new ProgressIndicatorBase();
+    private volatile ExtractionPlan previewedPlan;
+
+    public ExtractComponentPreviewDialog(Project project, PsiElement[] elements) {
+        super(project);
+        this.project = project;
+        this.elements = elements;
+        previewAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, getDisposable());
+        Disposer.register(getDisposable(), () -> previewIndicator.cancel());
+        preview.setEditable(false);
+        preview.setFont(new Font(Font.MONOSPACED, Font.PLAIN, UIUtil.getLabelFont().getSize()));
+        nameField.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                SchedulePreview();
+            }
+        });
+        lazyModuleCheckBox.addActionListener(e -> SchedulePreview());
+        setTitle("Extract Component");
+        init();
+        SchedulePreview();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("Component name (in upper camel case):", nameField)
+                .addComponentToRightColumn(lazyModuleCheckBox)
+                .addComponentToRightColumn(new JBScrollPane(preview))
+                .getPanel();
+    }
+
+    @Override
+    public @Nullable JComponent getPreferredFocusedComponent() {
+        return nameField;
+    }
+
+    @Override
+    protected @Nullable ValidationInfo doValidate() {
+        if (!StringUtil.isJavaIdentifier(ComponentName())) return new ValidationInfo("Not a valid component name", nameField);
+        ExtractionPlan plan = PreviewedPlan();
+        if (plan != null && !plan.routingBlockers.isEmpty()) {
+            return new ValidationInfo("Can't be loaded lazily: " + plan.routingBlockers.get(0), lazyModuleCheckBox);
+        }
+        return null;
+    }
+
+    public String ComponentName() {
+        return StringUtil.capitalize(nameField.getText().trim());
+    }
+
+    public boolean IsLazyModule() {
+        return lazyModuleCheckBox.isSelected();
+    }
+
+    /**
+     * @return the plan the preview showed, when it was rendered for the name and target that were confirmed
+     */
+    public @Nullable ExtractionPlan PreviewedPlan() {
+        ExtractionPlan plan = previewedPlan;
+        return plan != null && plan.componentNameCamelCase.equals(ComponentName()) && plan.IsLazyModule() == IsLazyModule() ? plan : null;
+    }
+
+    private void SchedulePreview() {
+        previewAlarm.cancelAllRequests();
+        previewIndicator.cancel();
+        ProgressIndicator indicator = previewIndicator = new ProgressIndicatorBase();
+        String previewName = PreviewName();
+        boolean lazyModule = IsLazyModule();
+        previewAlarm.addRequest(() -> RenderPreview(previewName, lazyModule, indicator), PREVIEW_DELAY_MS);
+    }
+
+    private String PreviewName() {
+        String name = ComponentName();
+        return StringUtil.isJavaIdentifier(name) ? name : PLACEHOLDER_NAME;
+    }
+
+    private void RenderPreview(String name, boolean lazyModule, ProgressIndicator indicator) {
+        DumbService dumbService = DumbService.getInstance(project);
+        ModalityState modalityState = ModalityState.stateForComponent(preview);
+        ExtractionPlan[] plan = new ExtractionPlan[1];
+        boolean[] dumb = new boolean[1];
+        while (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() -> {
+            //the NgModule lookup needs the index
+            dumb[0] = dumbService.isDumb();
+            if (!dumb[0] && elements[0].isValid()) plan[0] = new RefactorHelper(project).Analyze(elements, name, lazyModule);
+        }, indicator)) {
+            if (indicator.isCanceled()) return;
+            ProgressIndicatorUtils.yieldToPendingWriteActions();
+        }
+        if (dumb[0]) {
+            dumbService.smartInvokeLater(() -> {
+                if (!isDisposed() && !indicator.isCanceled()) SchedulePreview();
+            }, modalityState);
+            return;
+        }
+        if (plan[0] == null) return;
+        String text = PreviewText(plan[0]);
+        ApplicationManager.getApplication().invokeLater(() -> {
+            //a result that raced a newer edit would show and confirm a plan for a name or target no longer in the fields
+            if (isDisposed() || indicator.isCanceled() || !name.equals(PreviewName()) || lazyModule != IsLazyModule()) return;
+            previewedPlan = plan[0];
+            preview.setText(text);
+            preview.setCaretPosition(0);
+        }, modalityState);
+    }
+
+    private static String PreviewText(ExtractionPlan plan) {
+        String generated = plan.invocationHtml + "\n\n" + plan.componentTs;
+        if (plan.IsLazyModule()) {
+            generated = RoutingBoundary.Describe(plan.analysis, plan.routingBlockers) + "\n" + plan.invocationHtml + "\n\n"
+                    + plan.moduleTs + "\n" + plan.componentTs;
+        }
+        if (plan.stylesWarning != null) generated = plan.stylesWarning + "\n\n" + generated;
+        return plan.changeDetectionWarning == null ? generated : plan.changeDetectionWarning + "\n\n" + generated;
+    }
+}
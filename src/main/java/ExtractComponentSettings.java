@@ -0,0 +1,49 @@
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+
+@State(name = "AngularExtractComponentSettings", storages = @Storage("angularExtractComponent.xml"))
+public class ExtractComponentSettings implements PersistentStateComponent<ExtractComponentSettings> {
+    /**
+     * The emitter already follows the code style, a full reformat is only needed for settings it doesn't know about.
+     */
+    public boolean reformatGeneratedFiles = false;
+    public boolean declareInNgModule = true;
+    /**
+     * Falls back to the default strategy for fragments that write to their inputs.
+     */
+    public boolean onPushChangeDetection = false;
+    /**
+     * Side effect free component methods called in the fragment become pure pipes instead of inputs.
+     */
+    public boolean generatePurePipes = false;
+    /**
+     * Rules of the parent's stylesheet that style the fragment go to the new component's stylesheet.
+     */
+    public boolean migrateStyles = true;
+    /**
+     * Fragments with at least this many bindings resolve them on all cores.
+     */
+    public int parallelResolveThreshold = 64;
+    /**
+     * The analysis is cancelled after this many milliseconds, 0 lets it run until it's done.
+     */
+    public int analysisTimeBudgetMs = 30_000;
+
+    public static ExtractComponentSettings getInstance() {
+        return ServiceManager.getService(ExtractComponentSettings.class);
+    }
+
+    @Override
+    public ExtractComponentSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull ExtractComponentSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+}
@@ -0,0 +1,140 @@
+import com.intellij.notification.NotificationGroup;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.refactoring.util.CommonRefactoringUtil;
+import com.intellij.util.IncorrectOperationException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the analysis in a cancellable background read action, then applies the plans in one short write command.
+ */
+public class ExtractComponentTask extends Task.Backgroundable {
+    private static final Logger LOG = Logger.getInstance(ExtractComponentTask.class);
+    private static final NotificationGroup NOTIFICATIONS = NotificationGroup.balloonGroup("Angular Extract Component");
+
+    private final List<ExtractionRequest> requests;
+    private final String commandName;
+    private final ExtractionMetrics metrics;
+    private List<ExtractionPlan> plans;
+    private volatile boolean timeBudgetExceeded;
+
+    public ExtractComponentTask(@NotNull Project project, PsiElement[] elements, String componentNameCamelCase) {
+        this(project, elements, componentNameCamelCase, new ExtractionMetrics());
+    }
+
+    public ExtractComponentTask(@NotNull Project project, PsiElement[] elements, String componentNameCamelCase, ExtractionMetrics metrics) {
+        this(project, Collections.singletonList(new ExtractionRequest(elements, componentNameCamelCase)), metrics);
+    }
+
+    /**
+     * @param metrics may already hold the time spent finding the selected elements
+     */
+    public ExtractComponentTask(@NotNull Project project, List<ExtractionRequest> requests, ExtractionMetrics metrics) {
+        super(project, requests.size() == 1 ? "Analyzing Angular Component" : "Analyzing Angular Components", true);
+        this.requests = requests;
+        this.commandName = requests.size() == 1 ? "Extract Component" : "Extract Components";
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        indicator.setIndeterminate(true);
+        ScheduledFuture<?> timeBudget = StartTimeBudget(indicator);
+        try {
+            //restarts the analysis whenever a write action needs the lock instead of blocking it,
+            //or indexing started, the NgModule lookup needs the index
+            DumbService dumbService = DumbService.getInstance(myProject);
+            //created once so a restarted analysis keeps what the interrupted one resolved
+            RefactorHelper refactorHelper = new RefactorHelper(myProject, metrics);
+            boolean[] started = new boolean[1];
+            while (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() -> {
+                if (dumbService.isDumb()) return;
+                if (started[0]) metrics.RestartAnalysis();
+                started[0] = true;
+                plans = refactorHelper.Analyze(requests);
+            }, indicator) || plans == null) {
+                indicator.checkCanceled();
+                ProgressIndicatorUtils.yieldToPendingWriteActions();
+                dumbService.waitForSmartMode();
+            }
+        } finally {
+            if (timeBudget != null) timeBudget.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels the indicator once the budget is used up, which every checkpoint of the analysis already listens to.
+     */
+    private @Nullable ScheduledFuture<?> StartTimeBudget(ProgressIndicator indicator) {
+        int budgetMs = ExtractComponentSettings.getInstance().analysisTimeBudgetMs;
+        if (budgetMs <= 0) return null;
+        return AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            timeBudgetExceeded = true;
+            indicator.cancel();
+        }, budgetMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onCancel() {
+        ReportMetrics("cancelled");
+        if (!timeBudgetExceeded || myProject.isDisposed()) return;
+        CommonRefactoringUtil.showErrorMessage(commandName,
+                "The analysis took longer than the time budget of " + ExtractComponentSettings.getInstance().analysisTimeBudgetMs + "ms and was stopped",
+                null, myProject);
+    }
+
+    @Override
+    public void onSuccess() {
+        if (plans == null || plans.isEmpty() || myProject.isDisposed()) return;
+        try {
+            WriteCommandAction.runWriteCommandAction(myProject, commandName, null, () -> new RefactorHelper(myProject, metrics).Apply(plans));
+            ReportMetrics("success");
+            NotifyWarnings(myProject, plans);
+        } catch (IncorrectOperationException e) {
+            ReportMetrics("failed");
+            CommonRefactoringUtil.showErrorMessage(commandName, e.getMessage(), null, myProject);
+        } catch (RuntimeException e) {
+            //Apply already put the files back as they were, this is a bug to report
+            ReportMetrics("failed");
+            LOG.error(e);
+            CommonRefactoringUtil.showErrorMessage(commandName, "The extraction failed and was rolled back: " + e.getMessage(), null, myProject);
+        }
+    }
+
+    @Override
+    public void onThrowable(@NotNull Throwable error) {
+        ReportMetrics("failed");
+        super.onThrowable(error);
+    }
+
+    static void NotifyWarnings(Project project, List<ExtractionPlan> plans) {
+        for (ExtractionPlan plan : plans) {
+            for (String warning : new String[]{plan.changeDetectionWarning, plan.stylesWarning}) {
+                if (warning == null) continue;
+                NOTIFICATIONS.createNotification("Extract Component", StringUtil.escapeXml(warning).replace("\n", "<br>"),
+                        NotificationType.WARNING, null).notify(project);
+            }
+        }
+    }
+
+    private void ReportMetrics(String outcome) {
+        //keeps the file write off the EDT
+        ApplicationManager.getApplication().executeOnPooledThread(() -> metrics.Report(outcome, requests.size()));
+    }
+}
@@ -0,0 +1,67 @@
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Asks for the names of all components extracted from a multi caret selection at once.
+ */
+public class ExtractComponentsDialog extends DialogWrapper {
+    private static final int PREVIEW_LENGTH = 50;
+    private final List<JBTextField> nameFields = new ArrayList<>();
+    private final List<String> previews = new ArrayList<>();
+
+    public ExtractComponentsDialog(Project project, List<PsiElement[]> selections) {
+        super(project);
+        for (PsiElement[] elements : selections) {
+            previews.add(StringUtil.shortenTextWithEllipsis(StringUtil.collapseWhiteSpace(elements[0].getText()), PREVIEW_LENGTH, 0));
+            nameFields.add(new JBTextField());
+        }
+        setTitle("Extract Components");
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        FormBuilder formBuilder = FormBuilder.createFormBuilder();
+        formBuilder.addComponent(new JLabel("Component names (in upper camel case)"));
+        for (int i = 0; i < nameFields.size(); i++) {
+            formBuilder.addLabeledComponent(previews.get(i), nameFields.get(i));
+        }
+        return formBuilder.getPanel();
+    }
+
+    @Override
+    public @Nullable JComponent getPreferredFocusedComponent() {
+        return nameFields.get(0);
+    }
+
+    @Override
+    protected @Nullable ValidationInfo doValidate() {
+        Set<String> names = new HashSet<>();
+        for (JBTextField nameField : nameFields) {
+            String name = StringUtil.capitalize(nameField.getText().trim());
+            if (!StringUtil.isJavaIdentifier(name)) return new ValidationInfo("Not a valid component name", nameField);
+            if (!names.add(name)) return new ValidationInfo("Component names must be unique", nameField);
+        }
+        return null;
+    }
+
+    public List<String> GetComponentNames() {
+        List<String> names = new ArrayList<>();
+        for (JBTextField nameField : nameFields) {
+            names.add(nameField.getText().trim());
+        }
+        return names;
+    }
+}
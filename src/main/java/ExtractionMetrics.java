@@ -0,0 +1,154 @@
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Phase timings and counters of one extraction run, safe to update from the threads resolving bindings concurrently.
+ * Reported to the IDE log and appended as one line to a rolling JSON-lines file in the system directory.
+ */
+public class ExtractionMetrics {
+    private static final Logger LOG = Logger.getInstance(ExtractionMetrics.class);
+    private static final long MAX_FILE_BYTES = 5 * 1024 * 1024;
+    private static final int KEPT_FILES = 3;
+
+    public static final String SELECTION = "selection";
+    public static final String PRE_PASS = "prePass";
+    public static final String TEMPLATE_WALK = "templateWalk";
+    public static final String RESOLUTION = "resolution";
+    public static final String STYLE_MATCHING = "styleMatching";
+    public static final String RENDERING = "rendering";
+    public static final String FILE_CREATION = "fileCreation";
+    public static final String REFORMAT = "reformat";
+    public static final String TEMPLATE_EDITS = "templateEdits";
+    public static final String MODULE_UPDATE = "moduleUpdate";
+    public static final String STYLE_EDITS = "styleEdits";
+
+    public static final String RESOLVE_CALLS = "resolveCalls";
+    public static final String TYPE_EVALUATIONS = "typeEvaluations";
+    public static final String PSI_EDITS = "psiEdits";
+    public static final String BYTES_GENERATED = "bytesGenerated";
+    public static final String ANALYSIS_RETRIES = "analysisRetries";
+
+    private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    public <T> T Time(String phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            phaseNanos.computeIfAbsent(phase, k -> new LongAdder()).add(System.nanoTime() - start);
+        }
+    }
+
+    public void Time(String phase, Runnable action) {
+        Time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * The time spent in a phase so far, 0 when it didn't run.
+     */
+    public double PhaseMillis(String phase) {
+        LongAdder nanos = phaseNanos.get(phase);
+        return nanos == null ? 0 : nanos.sum() / 1_000_000.0;
+    }
+
+    /**
+     * Drops what an analysis interrupted by a write action recorded, so only the attempt that finished is reported.
+     * The selection was found before the analysis started and is kept.
+     */
+    public void RestartAnalysis() {
+        for (String phase : new String[]{PRE_PASS, TEMPLATE_WALK, RESOLUTION, STYLE_MATCHING, RENDERING}) {
+            phaseNanos.remove(phase);
+        }
+        for (String counter : new String[]{RESOLVE_CALLS, TYPE_EVALUATIONS, BYTES_GENERATED}) {
+            counters.remove(counter);
+        }
+        Count(ANALYSIS_RETRIES);
+    }
+
+    public void Count(String counter) {
+        Count(counter, 1);
+    }
+
+    public void Count(String counter, long amount) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * @param outcome how the run ended, success, cancelled or failed
+     */
+    public void Report(String outcome, int extractionCount) {
+        String line = ToJson(outcome, extractionCount);
+        LOG.info("Extract component " + line);
+        File metricsFile = new File(PathManager.getSystemPath(), "angular-extract-component/metrics.jsonl");
+        try {
+            synchronized (ExtractionMetrics.class) {
+                Files.createDirectories(metricsFile.getParentFile().toPath());
+                if (metricsFile.length() > MAX_FILE_BYTES) Roll(metricsFile);
+                Files.write(metricsFile.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not write extraction metrics to " + metricsFile, e);
+        }
+    }
+
+    /**
+     * metrics.jsonl becomes metrics.1.jsonl, the oldest file is dropped.
+     */
+    private static void Roll(File metricsFile) throws IOException {
+        File directory = metricsFile.getParentFile();
+        Files.deleteIfExists(new File(directory, "metrics." + KEPT_FILES + ".jsonl").toPath());
+        for (int i = KEPT_FILES - 1; i >= 1; i--) {
+            File rolled = new File(directory, "metrics." + i + ".jsonl");
+            if (rolled.exists()) {
+                Files.move(rolled.toPath(), new File(directory, "metrics." + (i + 1) + ".jsonl").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(metricsFile.toPath(), new File(directory, "metrics.1.jsonl").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private String ToJson(String outcome, int extractionCount) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"timestamp\":").append(startedAt)
+                .append(",\"outcome\":\"").append(outcome).append('"')
+                .append(",\"extractions\":").append(extractionCount)
+                .append(",\"phasesMs\":{");
+        AppendValues(json, phaseNanos, 1_000_000);
+        json.append("},\"counters\":{");
+        AppendValues(json, counters, 1);
+        json.append("}}");
+        return json.toString();
+    }
+
+    private static void AppendValues(StringBuilder json, Map<String, LongAdder> values, long divisor) {
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(values).entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append('"').append(entry.getKey()).append("\":");
+            if (divisor == 1) {
+                json.append(entry.getValue().sum());
+            } else {
+                json.append(String.format(Locale.ROOT, "%.3f", entry.getValue().sum() / (double) divisor));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the read-only analysis phase: everything the write command needs to apply the extraction.
+ */
+public class ExtractionPlan {
+    public final String componentNameCamelCase;
+    public final String componentHyphen;
+    public final String invocationHtml;
+    public final String componentTs;
+    public final String componentHtml;
+    public final TemplateAnalysis analysis;
+    public final boolean onPush;
+    /**
+     * Why OnPush change detection was asked for but not used, null when there's nothing to warn about.
+     */
+    public final @Nullable String changeDetectionWarning;
+    public final Map<PipeDefinition, String> pipesTs;
+    /**
+     * The new component's stylesheet, null when no rule of the parent's one is migrated.
+     */
+    public final @Nullable String componentCss;
+    /**
+     * The parent's rules that style the fragment but aren't migrated, null when there's nothing to warn about.
+     */
+    public final @Nullable String stylesWarning;
+    /**
+     * The feature module loading the component through a route, null when the component is declared next to its parent.
+     */
+    public final @Nullable String moduleTs;
+    /**
+     * Why the fragment can't be loaded through a route, only filled for a feature module.
+     */
+    public final List<String> routingBlockers;
+    /**
+     * The declarations or the route added to a module, resolved during the analysis. Null when nothing is registered.
+     */
+    public final @Nullable NgModuleEdit moduleEdit;
+
+    public ExtractionPlan(String componentNameCamelCase,
+                          String componentHyphen,
+                          String invocationHtml,
+                          String componentTs,
+                          String componentHtml,
+                          TemplateAnalysis analysis,
+                          boolean onPush,
+                          @Nullable String changeDetectionWarning,
+                          Map<PipeDefinition, String> pipesTs,
+                          @Nullable String componentCss,
+                          @Nullable String stylesWarning,
+                          @Nullable String moduleTs,
+                          List<String> routingBlockers,
+                          @Nullable NgModuleEdit moduleEdit) {
+        this.componentNameCamelCase = componentNameCamelCase;
+        this.componentHyphen = componentHyphen;
+        this.invocationHtml = invocationHtml;
+        this.componentTs = componentTs;
+        this.componentHtml = componentHtml;
+        this.analysis = analysis;
+        this.onPush = onPush;
+        this.changeDetectionWarning = changeDetectionWarning;
+        this.pipesTs = Collections.unmodifiableMap(pipesTs);
+        this.componentCss = componentCss;
+        this.stylesWarning = stylesWarning;
+        this.moduleTs = moduleTs;
+        this.routingBlockers = Collections.unmodifiableList(routingBlockers);
+        this.moduleEdit = moduleEdit;
+    }
+
+    public boolean IsLazyModule() {
+        return moduleTs != null;
+    }
+
+    public TextRange SelectionRange() {
+        return analysis.selectionRange;
+    }
+
+    /**
+     * @return the template the fragment was taken from, or null when it was edited after the plan was made
+     */
+    public @Nullable PsiFile FindTemplateFile(Project project) {
+        if (!analysis.templateFile.isValid()) return null;
+        PsiFile templateFile = PsiManager.getInstance(project).findFile(analysis.templateFile);
+        if (templateFile == null || templateFile.getModificationStamp() != analysis.modificationStamp) return null;
+        Document document = PsiDocumentManager.getInstance(project).getDocument(templateFile);
+        if (document == null || PsiDocumentManager.getInstance(project).isUncommited(document)) return null;
+        return templateFile;
+    }
+}
@@ -0,0 +1,20 @@
+import com.intellij.psi.PsiElement;
+
+public class ExtractionRequest {
+    public final PsiElement[] elements;
+    public final String componentNameCamelCase;
+    /**
+     * Extracts into a new feature module loaded through a route instead of a component next to the template.
+     */
+    public final boolean lazyModule;
+
+    public ExtractionRequest(PsiElement[] elements, String componentNameCamelCase) {
+        this(elements, componentNameCamelCase, false);
+    }
+
+    public ExtractionRequest(PsiElement[] elements, String componentNameCamelCase, boolean lazyModule) {
+        this.elements = elements;
+        this.componentNameCamelCase = componentNameCamelCase;
+        this.lazyModule = lazyModule;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * A write in the fragment that goes to a bound value directly instead of through an EventEmitter.
+ */
+public class InputMutation {
+    public final String inputName;
+    public final String expressionText;
+
+    public InputMutation(String inputName, String expressionText) {
+        this.inputName = inputName;
+        this.expressionText = expressionText;
+    }
+
+    @Override
+    public String toString() {
+        return "'" + expressionText + "' writes to the input " + inputName;
+    }
+}
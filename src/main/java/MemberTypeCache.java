@@ -0,0 +1,86 @@
+import com.intellij.lang.javascript.psi.JSFunction;
+import com.intellij.lang.javascript.psi.JSType;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptFunction;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Return types of component methods and getters, keyed by the member's file and offset so a method called from many
+ * bindings is only inferred once. A generic method isn't cached, its return type depends on the call.
+ * Holds the most recently used entries and is emptied by any PSI change, which is what keeps the offsets valid.
+ */
+public class MemberTypeCache {
+    private static final int MAX_ENTRIES = 2048;
+    //null can't be told apart from a missing entry
+    private static final String UNKNOWN_TYPE = "";
+
+    private final PsiModificationTracker modificationTracker;
+    private final Map<String, String> memberTypes = new LinkedHashMap<String, String>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private long modificationCount = -1;
+
+    public MemberTypeCache(Project project) {
+        modificationTracker = PsiModificationTracker.SERVICE.getInstance(project);
+    }
+
+    public static MemberTypeCache getInstance(Project project) {
+        return ServiceManager.getService(project, MemberTypeCache.class);
+    }
+
+    /**
+     * @param inferType used when the member doesn't declare its type, for example by evaluating a call of it
+     */
+    public @Nullable String MemberType(JSFunction member, Supplier<JSType> inferType) {
+        String key = IsGeneric(member) ? null : MemberKey(member);
+        if (key == null) return TypeOrInferred(member, inferType);
+
+        long currentCount;
+        synchronized (memberTypes) {
+            currentCount = modificationTracker.getModificationCount();
+            if (currentCount != modificationCount) {
+                memberTypes.clear();
+                modificationCount = currentCount;
+            }
+            String type = memberTypes.get(key);
+            if (type != null) return type == UNKNOWN_TYPE ? null : type;
+        }
+
+        String type = TypeOrInferred(member, inferType);
+        synchronized (memberTypes) {
+            //a type inferred while the PSI changed belongs to the old count
+            if (modificationCount == currentCount) memberTypes.put(key, type == null ? UNKNOWN_TYPE : type);
+        }
+        return type;
+    }
+
+    private static @Nullable String TypeOrInferred(JSFunction member, Supplier<JSType> inferType) {
+        String type = IsGeneric(member) ? null : TypeScriptTypes.ToTypeText(member.getReturnType());
+        return type != null && !"any".equals(type) ? type : TypeScriptTypes.ToTypeText(inferType.get());
+    }
+
+    private static boolean IsGeneric(JSFunction member) {
+        return member instanceof TypeScriptFunction && ((TypeScriptFunction) member).getTypeParameterList() != null;
+    }
+
+    /**
+     * The member itself, a getter and a setter of the same name or two classes of the same name in different files don't share an entry.
+     */
+    private static @Nullable String MemberKey(JSFunction member) {
+        PsiFile file = member.getContainingFile();
+        VirtualFile virtualFile = file == null ? null : file.getViewProvider().getVirtualFile();
+        if (virtualFile == null) return null;
+        return virtualFile.getPath() + ":" + member.getTextRange().getStartOffset();
+    }
+}
@@ -0,0 +1,36 @@
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parent's style rules that apply to the fragment. The ones nothing else in the parent's template uses are moved,
+ * the others are copied. Rules that apply to the fragment but can't be carried into the new component are only named.
+ */
+public class MigratedStyles {
+    public final VirtualFile stylesheet;
+    public final long modificationStamp;
+    public final List<StyleRule> rules;
+    public final List<StyleRule> movedRules;
+    /**
+     * What isn't migrated and why, like a selector reaching outside the selection through a child combinator
+     * or a Sass stylesheet the matcher doesn't read.
+     */
+    public final List<String> unmigrated;
+
+    public MigratedStyles(VirtualFile stylesheet, long modificationStamp, List<StyleRule> rules, List<StyleRule> movedRules,
+                          List<String> unmigrated) {
+        this.stylesheet = stylesheet;
+        this.modificationStamp = modificationStamp;
+        this.rules = Collections.unmodifiableList(rules);
+        this.movedRules = Collections.unmodifiableList(movedRules);
+        this.unmigrated = Collections.unmodifiableList(unmigrated);
+    }
+
+    public @Nullable String UnmigratedWarning(String componentNameCamelCase) {
+        if (unmigrated.isEmpty()) return null;
+        return "Styles not migrated to " + componentNameCamelCase + "Component, they no longer apply to the extracted markup:\n  "
+                + String.join("\n  ", unmigrated);
+    }
+}
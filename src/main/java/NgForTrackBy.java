@@ -0,0 +1,108 @@
+import com.intellij.lang.injection.InjectedLanguageManager;
+import com.intellij.lang.javascript.TypeScriptFileType;
+import com.intellij.lang.javascript.psi.JSRecordType;
+import com.intellij.lang.javascript.psi.JSType;
+import com.intellij.lang.javascript.psi.ecmal4.JSAttributeList;
+import com.intellij.lang.javascript.psi.ecmal4.JSAttributeListOwner;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
+import org.angular2.lang.expr.psi.Angular2TemplateBinding;
+import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the identity key of the items an *ngFor iterates, so rows are only recreated when the item itself changes.
+ */
+public class NgForTrackBy {
+    //in order of preference when an item has several of them
+    private static final String[] IDENTITY_KEYS = {"id", "uuid", "key", "_id", "code"};
+    //the names a type text refers to, not the keys of an object type like `{ id: number }`
+    private static final Pattern TYPE_NAME = Pattern.compile("(?<![\\w$.])([A-Za-z_$][\\w$]*)(?![\\w$])(?!\\s*\\??\\s*:)");
+    //built in, these need no import
+    private static final Set<String> GLOBAL_TYPES = new HashSet<>(Arrays.asList(
+            "string", "number", "boolean", "any", "unknown", "object", "void", "null", "undefined", "never", "symbol", "bigint",
+            "Array", "ReadonlyArray", "Date", "Map", "Set", "Promise", "Record", "Partial", "Readonly", "Object", "String", "Number",
+            "Boolean"));
+
+    /**
+     * @return null when the *ngFor has a trackBy already or no identity key is found on the item type
+     */
+    public static @Nullable TrackByFunction Infer(Angular2TemplateBindings templateBindings, ExtractionMetrics metrics) {
+        if (!"ngFor".equals(templateBindings.getTemplateName())) return null;
+        Angular2TemplateBinding[] bindings = templateBindings.getBindings();
+        for (Angular2TemplateBinding binding : bindings) {
+            if (!binding.keyIsVar() && "ngForTrackBy".equals(binding.getKey())) return null;
+        }
+        JSType iterableType = TemplateSymbolTable.BoundJSType(bindings, "ngForOf", metrics);
+        JSType itemType = iterableType == null ? null : TemplateSymbolTable.ElementType(iterableType);
+        String itemTypeText = TypeScriptTypes.ToTypeText(itemType);
+        if (itemType == null || itemTypeText == null || "any".equals(itemTypeText)) return null;
+
+        JSRecordType recordType = itemType.asRecordType();
+        for (String key : IDENTITY_KEYS) {
+            JSRecordType.PropertySignature property = recordType.findPropertySignature(key);
+            if (property == null) continue;
+            String keyType = TypeScriptTypes.ToTypeText(property.getJSType());
+            //a named item type keeps functions for different lists apart, `trackByOrderId`
+            String typeName = StringUtil.isJavaIdentifier(itemTypeText) ? StringUtil.capitalize(itemTypeText) : "";
+            String name = "trackBy" + typeName + StringUtil.capitalize(StringUtil.trimStart(key, "_"));
+            List<PipeDefinition.PipeImport> itemImports = ItemTypeImports(templateBindings, itemTypeText);
+            //a type the new component can't import is left untyped rather than breaking the build
+            return itemImports == null
+                    ? new TrackByFunction(name, "any", key, keyType == null ? "any" : keyType, Collections.emptyList())
+                    : new TrackByFunction(name, itemTypeText, key, keyType == null ? "any" : keyType, itemImports);
+        }
+        return null;
+    }
+
+    /**
+     * The parent component's imports of the names the item type uses, and its own file for the types it exports.
+     * The component is the file of an inline template, or the one next to the template under the same name.
+     *
+     * @return null when a name can't be imported that way
+     */
+    private static @Nullable List<PipeDefinition.PipeImport> ItemTypeImports(PsiElement templateElement, String itemTypeText) {
+        PsiFile componentFile = InjectedLanguageManager.getInstance(templateElement.getProject()).getTopLevelFile(templateElement);
+        if (componentFile != null && componentFile.getFileType() != TypeScriptFileType.INSTANCE) {
+            PsiDirectory directory = componentFile.getContainingDirectory();
+            componentFile = directory == null ? null : directory.findFile(StringUtil.trimEnd(componentFile.getName(), ".html") + ".ts");
+        }
+        Set<String> names = new LinkedHashSet<>();
+        Matcher typeName = TYPE_NAME.matcher(itemTypeText);
+        while (typeName.find()) {
+            if (!GLOBAL_TYPES.contains(typeName.group(1))) names.add(typeName.group(1));
+        }
+        if (names.isEmpty()) return Collections.emptyList();
+        if (componentFile == null || componentFile.getVirtualFile() == null) return null;
+
+        List<PipeDefinition.PipeImport> imports = PurePipeFactory.UsedImports(componentFile, itemTypeText);
+        if (imports == null) return null;
+        for (PipeDefinition.PipeImport pipeImport : imports) {
+            for (String specifier : pipeImport.names) {
+                names.remove(specifier.contains(" as ") ? StringUtil.substringAfterLast(specifier, " as ").trim() : specifier);
+            }
+        }
+        List<String> exported = new ArrayList<>();
+        for (PsiElement declaration : componentFile.getChildren()) {
+            if (!(declaration instanceof JSAttributeListOwner) || !(declaration instanceof PsiNamedElement)) continue;
+            JSAttributeList attributeList = ((JSAttributeListOwner) declaration).getAttributeList();
+            String name = ((PsiNamedElement) declaration).getName();
+            if (attributeList != null && attributeList.hasModifier(JSAttributeList.ModifierType.EXPORT) && names.remove(name)) {
+                exported.add(name);
+            }
+        }
+        if (!names.isEmpty()) return null;
+        if (!exported.isEmpty()) {
+            String componentPath = StringUtil.trimEnd(componentFile.getVirtualFile().getPath(), ".ts");
+            imports.add(new PipeDefinition.PipeImport(exported, componentPath, true));
+        }
+        return imports;
+    }
+}
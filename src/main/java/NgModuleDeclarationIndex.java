@@ -0,0 +1,108 @@
+import com.intellij.lang.javascript.TypeScriptFileType;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps every class name listed in the `declarations` of an `@NgModule` to the TypeScript files declaring it.
+ * Reads the file text only, so indexing a workspace with hundreds of modules stays cheap.
+ */
+public class NgModuleDeclarationIndex extends ScalarIndexExtension<String> {
+    public static final ID<String, Void> NAME = ID.create("AngularExtractComponent.NgModuleDeclarations");
+
+    @NotNull
+    @Override
+    public ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Void, FileContent> getIndexer() {
+        return inputData -> {
+            Map<String, Void> declared = new HashMap<>();
+            CharSequence text = inputData.getContentAsText();
+            int module = IndexOf(text, "@NgModule", 0);
+            while (module >= 0) {
+                int declarations = IndexOf(text, "declarations", module);
+                int nextModule = IndexOf(text, "@NgModule", module + 1);
+                if (declarations >= 0 && (nextModule < 0 || declarations < nextModule)) {
+                    AddDeclaredNames(text, declarations + "declarations".length(), declared);
+                }
+                module = nextModule;
+            }
+            return declared;
+        };
+    }
+
+    /**
+     * Reads `: [ AComponent, BComponent ]`, anything other than plain names, like spread constants, is skipped.
+     */
+    private static void AddDeclaredNames(CharSequence text, int offset, Map<String, Void> declared) {
+        int i = ExpressionScanner.SkipWhitespace(text, offset, text.length());
+        if (i >= text.length() || text.charAt(i) != ':') return;
+        i = ExpressionScanner.SkipWhitespace(text, i + 1, text.length());
+        if (i >= text.length() || text.charAt(i) != '[') return;
+        i++;
+        int depth = 1;
+        while (i < text.length() && depth > 0) {
+            char c = text.charAt(i);
+            if (c == '/' && i + 1 < text.length() && (text.charAt(i + 1) == '/' || text.charAt(i + 1) == '*')) {
+                i = SkipComment(text, i);
+            } else if (c == '[' || c == '(' || c == '{') {
+                depth++;
+                i++;
+            } else if (c == ']' || c == ')' || c == '}') {
+                depth--;
+                i++;
+            } else if (depth == 1 && ExpressionScanner.IsIdentifierStart(c) && (i == 0 || text.charAt(i - 1) != '.')) {
+                int end = ExpressionScanner.SkipIdentifier(text, i, text.length());
+                declared.put(text.subSequence(i, end).toString(), null);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int SkipComment(CharSequence text, int start) {
+        if (text.charAt(start + 1) == '/') {
+            int end = start;
+            while (end < text.length() && text.charAt(end) != '\n') end++;
+            return end;
+        }
+        int end = IndexOf(text, "*/", start + 2);
+        return end < 0 ? text.length() : end + 2;
+    }
+
+    private static int IndexOf(CharSequence text, String needle, int from) {
+        return StringUtil.indexOf(text, needle, from);
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(TypeScriptFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entries a plan adds to the declarations or the routes of a module file. Where they go and how the list is laid out
+ * is resolved during the analysis, so the write command only inserts text.
+ */
+public class NgModuleEdit {
+    public final VirtualFile moduleFile;
+    public final long modificationStamp;
+    /**
+     * Where the entries go into the array: after its last entry, in front of a wildcard route, or into an empty array.
+     */
+    public final int listOffset;
+    /**
+     * Between two entries, following the layout of the existing list, one entry per line or all on one line.
+     */
+    public final String separator;
+    public final boolean inFront;
+    public final boolean emptyList;
+    /**
+     * The entries the list has already, those aren't added again.
+     */
+    public final Set<String> listed;
+    /**
+     * The entries to add with the import each one needs, null for a route.
+     */
+    public final Map<String, String> entries;
+    public final int importOffset;
+
+    public NgModuleEdit(VirtualFile moduleFile,
+                        long modificationStamp,
+                        int listOffset,
+                        String separator,
+                        boolean inFront,
+                        boolean emptyList,
+                        Set<String> listed,
+                        Map<String, String> entries,
+                        int importOffset) {
+        this.moduleFile = moduleFile;
+        this.modificationStamp = modificationStamp;
+        this.listOffset = listOffset;
+        this.separator = separator;
+        this.inFront = inFront;
+        this.emptyList = emptyList;
+        this.listed = Collections.unmodifiableSet(listed);
+        this.entries = Collections.unmodifiableMap(entries);
+        this.importOffset = importOffset;
+    }
+
+    public String RenderEntries(Collection<String> newEntries) {
+        String joined = String.join(separator, newEntries);
+        if (emptyList) return joined;
+        return inFront ? joined + separator : separator + joined;
+    }
+
+    public String RenderImports(Collection<String> imports) {
+        String joined = String.join("\n", imports);
+        return importOffset == 0 ? joined + "\n" : "\n" + joined;
+    }
+
+    /**
+     * @return the module's document, or null when the module was edited after the plan was made
+     */
+    public @Nullable Document FindDocument(Project project) {
+        if (!moduleFile.isValid()) return null;
+        PsiFile file = PsiManager.getInstance(project).findFile(moduleFile);
+        if (file == null || file.getModificationStamp() != modificationStamp) return null;
+        Document document = PsiDocumentManager.getInstance(project).getDocument(file);
+        if (document == null || PsiDocumentManager.getInstance(project).isUncommited(document)) return null;
+        return document;
+    }
+}
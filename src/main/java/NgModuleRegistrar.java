@@ -0,0 +1,298 @@
+import com.intellij.lang.ecmascript6.psi.ES6ImportDeclaration;
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptClass;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Declares an extracted component and the pipes generated with it in the NgModule that declares the component it was extracted from.
+ * The module is looked up in {@link NgModuleDeclarationIndex}, only that one file is parsed.
+ * Modules and routes are resolved during the analysis, in smart mode, into {@link NgModuleEdit}s that the write command only inserts.
+ */
+public class NgModuleRegistrar {
+    private final Project project;
+
+    public NgModuleRegistrar(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * The declarations entries and imports for the files an extraction creates, null when the source component's module
+     * can't be found. Must run in the read action of the analysis.
+     *
+     * @param directoryPath where the files will be created
+     * @param declaredFiles the classes to declare and the names of the files they'll be in
+     */
+    public @Nullable NgModuleEdit PlanDeclarations(PsiFile templateFile, String directoryPath, Map<String, String> declaredFiles) {
+        PsiDirectory directory = templateFile.getContainingDirectory();
+        String sourceClassName = directory == null ? null : FindSourceComponentName(templateFile, directory);
+        if (sourceClassName == null) return null;
+        PsiFile moduleFile = FindModuleFile(sourceClassName, directory.getVirtualFile());
+        JSArrayLiteralExpression declarations = moduleFile == null ? null : FindDeclarations(moduleFile, sourceClassName);
+        if (declarations == null) return null;
+
+        ComponentEmitter emitter = new ComponentEmitter(moduleFile);
+        String moduleDirectoryPath = moduleFile.getVirtualFile().getParent().getPath();
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, String> declaredFile : declaredFiles.entrySet()) {
+            String importPath = ImportPath(moduleDirectoryPath, directoryPath + "/" + declaredFile.getValue());
+            entries.put(declaredFile.getKey(), emitter.RenderImport(Collections.singletonList(declaredFile.getKey()), importPath));
+        }
+        return ListEdit(moduleFile, declarations, entries, ImportOffset(moduleFile));
+    }
+
+    /**
+     * The routes a lazily loaded component extracted from the template is added to: the ones given to RouterModule
+     * in the module declaring the source component, or in a routing module it imports.
+     *
+     * @return null when none are found
+     */
+    public @Nullable Routes FindRoutes(PsiFile templateFile) {
+        PsiDirectory directory = templateFile.getContainingDirectory();
+        String sourceClassName = directory == null ? null : FindSourceComponentName(templateFile, directory);
+        if (sourceClassName == null) return null;
+        PsiFile moduleFile = FindModuleFile(sourceClassName, directory.getVirtualFile());
+        if (moduleFile == null) return null;
+        Routes routes = FindRouterModuleRoutes(moduleFile);
+        if (routes != null) return routes;
+
+        JSObjectLiteralExpression ngModule = FindNgModuleArgument(moduleFile);
+        JSProperty imports = ngModule == null ? null : ngModule.findProperty("imports");
+        if (imports == null || !(imports.getValue() instanceof JSArrayLiteralExpression)) return null;
+        for (JSExpression importedModule : ((JSArrayLiteralExpression) imports.getValue()).getExpressions()) {
+            if (!(importedModule instanceof JSReferenceExpression)) continue;
+            PsiElement moduleClass = ((JSReferenceExpression) importedModule).resolve();
+            if (moduleClass == null || moduleClass.getContainingFile() == moduleFile) continue;
+            routes = FindRouterModuleRoutes(moduleClass.getContainingFile());
+            if (routes != null) return routes;
+        }
+        return null;
+    }
+
+    /**
+     * A loadChildren route to the component's feature module, in front of a wildcard route so it stays reachable.
+     * Must run in the read action of the analysis.
+     *
+     * @param featureModulePath where the feature module file will be created
+     */
+    public NgModuleEdit PlanLazyRoute(Routes routes, String routePath, String featureModulePath, String featureModuleClass) {
+        String loadChildren = ImportPath(routes.routesFile.getVirtualFile().getParent().getPath(), featureModulePath) + "#" + featureModuleClass;
+        String route = new ComponentEmitter(routes.routesFile).RenderLazyRoute(routePath, loadChildren);
+        return ListEdit(routes.routesFile, routes.routes, Collections.singletonMap(route, null), 0);
+    }
+
+    /**
+     * Inserts the entries of every plan, all edits of one module file at once and from the end so the analyzed offsets
+     * stay valid. Entries listed already or added by an earlier plan, like a pipe shared by two extractions, are skipped.
+     * Must run in the write command applying the plans, after {@link NgModuleEdit#FindDocument} was checked for each of them.
+     *
+     * @return the number of module files changed
+     */
+    public int Apply(List<ExtractionPlan> plans) {
+        Map<VirtualFile, List<NgModuleEdit>> editsByModule = new LinkedHashMap<>();
+        for (ExtractionPlan plan : plans) {
+            if (plan.moduleEdit != null) editsByModule.computeIfAbsent(plan.moduleEdit.moduleFile, file -> new ArrayList<>()).add(plan.moduleEdit);
+        }
+        int changedModules = 0;
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        for (List<NgModuleEdit> moduleEdits : editsByModule.values()) {
+            Document document = moduleEdits.get(0).FindDocument(project);
+            if (document == null) continue;
+            Map<Integer, NgModuleEdit> lists = new HashMap<>();
+            Map<Integer, Set<String>> listEntries = new HashMap<>();
+            Set<String> imports = new LinkedHashSet<>();
+            NgModuleEdit importingEdit = null;
+            for (NgModuleEdit moduleEdit : moduleEdits) {
+                lists.putIfAbsent(moduleEdit.listOffset, moduleEdit);
+                Set<String> entries = listEntries.computeIfAbsent(moduleEdit.listOffset, offset -> new LinkedHashSet<>());
+                for (Map.Entry<String, String> entry : moduleEdit.entries.entrySet()) {
+                    if (moduleEdit.listed.contains(entry.getKey()) || !entries.add(entry.getKey())) continue;
+                    if (entry.getValue() == null) continue;
+                    imports.add(entry.getValue());
+                    importingEdit = moduleEdit;
+                }
+            }
+            List<TextEdit> edits = new ArrayList<>();
+            for (Map.Entry<Integer, Set<String>> entries : listEntries.entrySet()) {
+                if (entries.getValue().isEmpty()) continue;
+                edits.add(TextEdit.Insert(entries.getKey(), lists.get(entries.getKey()).RenderEntries(entries.getValue())));
+            }
+            if (edits.isEmpty()) continue;
+            if (importingEdit != null) edits.add(TextEdit.Insert(importingEdit.importOffset, importingEdit.RenderImports(imports)));
+            edits.sort(Comparator.comparingInt((TextEdit edit) -> edit.startOffset).reversed());
+            for (TextEdit edit : edits) {
+                document.insertString(edit.startOffset, edit.replacement);
+            }
+            documentManager.commitDocument(document);
+            changedModules++;
+        }
+        return changedModules;
+    }
+
+    private static @Nullable Routes FindRouterModuleRoutes(PsiFile file) {
+        for (JSCallExpression call : PsiTreeUtil.findChildrenOfType(file, JSCallExpression.class)) {
+            JSExpression methodExpression = call.getMethodExpression();
+            if (methodExpression == null) continue;
+            String method = methodExpression.getText();
+            if (!"RouterModule.forRoot".equals(method) && !"RouterModule.forChild".equals(method)) continue;
+            JSExpression[] arguments = call.getArguments();
+            if (arguments.length == 0) continue;
+            JSExpression routes = arguments[0];
+            if (routes instanceof JSReferenceExpression) {
+                //const routes: Routes = [...]
+                PsiElement variable = ((JSReferenceExpression) routes).resolve();
+                routes = variable instanceof JSVariable ? ((JSVariable) variable).getInitializer() : null;
+            }
+            if (routes instanceof JSArrayLiteralExpression) {
+                return new Routes(routes.getContainingFile(), (JSArrayLiteralExpression) routes, method.endsWith("forRoot"));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The class of the component whose template this is, from the TypeScript file next to it.
+     */
+    private static @Nullable String FindSourceComponentName(PsiFile templateFile, PsiDirectory directory) {
+        String tsName = StringUtil.trimEnd(templateFile.getName(), ".html") + ".ts";
+        PsiFile tsFile = directory.findFile(tsName);
+        if (tsFile == null) return null;
+        for (TypeScriptClass typeScriptClass : PsiTreeUtil.findChildrenOfType(tsFile, TypeScriptClass.class)) {
+            JSAttributeList attributeList = typeScriptClass.getAttributeList();
+            if (attributeList != null && attributeList.getText().contains("@Component")) return typeScriptClass.getName();
+        }
+        return null;
+    }
+
+    /**
+     * When several modules declare the component, the one closest to the template wins.
+     */
+    private @Nullable PsiFile FindModuleFile(String sourceClassName, VirtualFile templateDirectory) {
+        Collection<VirtualFile> moduleFiles = FileBasedIndex.getInstance()
+                .getContainingFiles(NgModuleDeclarationIndex.NAME, sourceClassName, GlobalSearchScope.projectScope(project));
+        VirtualFile closest = null;
+        int closestDistance = Integer.MAX_VALUE;
+        for (VirtualFile moduleFile : moduleFiles) {
+            String relativePath = FileUtil.getRelativePath(moduleFile.getParent().getPath(), templateDirectory.getPath(), '/');
+            if (relativePath == null) continue;
+            //a module in a directory above the template beats one somewhere else
+            int distance = StringUtil.countChars(relativePath, '/') + (relativePath.startsWith("..") ? 1000 : 0);
+            if (closest == null || distance < closestDistance) {
+                closest = moduleFile;
+                closestDistance = distance;
+            }
+        }
+        return closest == null ? null : PsiManager.getInstance(project).findFile(closest);
+    }
+
+    private static @Nullable JSObjectLiteralExpression FindNgModuleArgument(PsiFile moduleFile) {
+        for (JSCallExpression call : PsiTreeUtil.findChildrenOfType(moduleFile, JSCallExpression.class)) {
+            JSExpression methodExpression = call.getMethodExpression();
+            if (methodExpression == null || !"NgModule".equals(methodExpression.getText())) continue;
+            JSExpression[] arguments = call.getArguments();
+            if (arguments.length > 0 && arguments[0] instanceof JSObjectLiteralExpression) return (JSObjectLiteralExpression) arguments[0];
+        }
+        return null;
+    }
+
+    private static @Nullable JSArrayLiteralExpression FindDeclarations(PsiFile moduleFile, String sourceClassName) {
+        for (JSCallExpression call : PsiTreeUtil.findChildrenOfType(moduleFile, JSCallExpression.class)) {
+            JSExpression methodExpression = call.getMethodExpression();
+            if (methodExpression == null || !"NgModule".equals(methodExpression.getText())) continue;
+            JSExpression[] arguments = call.getArguments();
+            if (arguments.length == 0 || !(arguments[0] instanceof JSObjectLiteralExpression)) continue;
+            JSProperty property = ((JSObjectLiteralExpression) arguments[0]).findProperty("declarations");
+            if (property == null || !(property.getValue() instanceof JSArrayLiteralExpression)) continue;
+            JSArrayLiteralExpression declarations = (JSArrayLiteralExpression) property.getValue();
+            for (JSExpression declaration : declarations.getExpressions()) {
+                if (sourceClassName.equals(declaration.getText())) return declarations;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follows the layout of the existing list, one entry per line or all on one line. A route goes in front of
+     * a wildcard route, which would otherwise match first.
+     */
+    private static NgModuleEdit ListEdit(PsiFile file, JSArrayLiteralExpression list, Map<String, String> entries, int importOffset) {
+        CharSequence text = file.getViewProvider().getContents();
+        JSExpression[] expressions = list.getExpressions();
+        Set<String> listed = new HashSet<>();
+        for (JSExpression expression : expressions) {
+            listed.add(expression.getText());
+        }
+        VirtualFile virtualFile = file.getVirtualFile();
+        long modificationStamp = file.getModificationStamp();
+        if (expressions.length == 0) {
+            return new NgModuleEdit(virtualFile, modificationStamp, list.getTextRange().getStartOffset() + 1, ", ", false, true,
+                    listed, entries, importOffset);
+        }
+        for (JSExpression expression : expressions) {
+            String expressionText = expression.getText();
+            if (!expressionText.contains("'**'") && !expressionText.contains("\"**\"")) continue;
+            int start = expression.getTextRange().getStartOffset();
+            String beforeWildcard = text.subSequence(LineStart(text, start), start).toString();
+            String separator = StringUtil.isEmptyOrSpaces(beforeWildcard) ? ",\n" + beforeWildcard : ", ";
+            return new NgModuleEdit(virtualFile, modificationStamp, start, separator, true, false, listed, entries, importOffset);
+        }
+        JSExpression last = expressions[expressions.length - 1];
+        int lastStart = last.getTextRange().getStartOffset();
+        String separator = ", ";
+        if (StringUtil.contains(text.subSequence(list.getTextRange().getStartOffset(), expressions[0].getTextRange().getStartOffset()), "\n")) {
+            separator = ",\n" + text.subSequence(LineStart(text, lastStart), lastStart);
+        }
+        return new NgModuleEdit(virtualFile, modificationStamp, last.getTextRange().getEndOffset(), separator, false, false,
+                listed, entries, importOffset);
+    }
+
+    private static int LineStart(CharSequence text, int offset) {
+        int lineStart = offset;
+        while (lineStart > 0 && text.charAt(lineStart - 1) != '\n') lineStart--;
+        return lineStart;
+    }
+
+    private static int ImportOffset(PsiFile moduleFile) {
+        int offset = 0;
+        for (ES6ImportDeclaration importDeclaration : PsiTreeUtil.findChildrenOfType(moduleFile, ES6ImportDeclaration.class)) {
+            offset = Math.max(offset, importDeclaration.getTextRange().getEndOffset());
+        }
+        return offset;
+    }
+
+    public static class Routes {
+        public final PsiFile routesFile;
+        public final JSArrayLiteralExpression routes;
+        /**
+         * Root routes are reached by an absolute link, child routes relative to the component showing the template.
+         */
+        public final boolean isRoot;
+
+        Routes(PsiFile routesFile, JSArrayLiteralExpression routes, boolean isRoot) {
+            this.routesFile = routesFile;
+            this.routes = routes;
+            this.isRoot = isRoot;
+        }
+    }
+
+    private static String ImportPath(String moduleDirectoryPath, String filePath) {
+        String relativePath = FileUtil.getRelativePath(moduleDirectoryPath, filePath, '/');
+        if (relativePath == null) relativePath = filePath;
+        relativePath = StringUtil.trimEnd(relativePath, ".ts");
+        return relativePath.startsWith(".") ? relativePath : "./" + relativePath;
+    }
+}
@@ -0,0 +1,74 @@
+import com.google.common.base.CaseFormat;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A pure pipe generated from a side effect free component method, as plain values like the rest of the analysis.
+ * It is named after the component and the method, `OrderListComponent.format` becomes the `orderListFormat` pipe, so
+ * methods of the same name in two components don't share a pipe.
+ */
+public class PipeDefinition {
+    public final String pipeName;
+    public final String className;
+    public final String fileName;
+    /**
+     * The method's parameter list including the parentheses, it becomes the parameter list of transform.
+     */
+    public final String parametersText;
+    public final @Nullable String returnType;
+    public final String bodyText;
+    public final List<PipeImport> imports;
+
+    /**
+     * @param componentClassName the class declaring the method, null for a function outside of a class
+     */
+    public PipeDefinition(@Nullable String componentClassName, String methodName, String parametersText, @Nullable String returnType,
+                          String bodyText, List<PipeImport> imports) {
+        String prefix = componentClassName == null ? "" : StringUtil.trimEnd(componentClassName, "Component");
+        String qualifiedName = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_CAMEL, prefix)
+                + (prefix.isEmpty() ? methodName : StringUtil.capitalize(methodName));
+        this.pipeName = qualifiedName;
+        this.className = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, qualifiedName) + "Pipe";
+        this.fileName = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_HYPHEN, qualifiedName) + ".pipe.ts";
+        this.parametersText = parametersText;
+        this.returnType = returnType;
+        this.bodyText = bodyText;
+        this.imports = Collections.unmodifiableList(imports);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PipeDefinition that = (PipeDefinition) o;
+        return Objects.equals(className, that.className) && Objects.equals(parametersText, that.parametersText)
+                && Objects.equals(bodyText, that.bodyText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(className, parametersText, bodyText);
+    }
+
+    /**
+     * Names the method uses from one import of the component's file.
+     */
+    public static class PipeImport {
+        public final List<String> names;
+        /**
+         * A package name, or the absolute path without extension for relative imports so it can be made relative to the pipe.
+         */
+        public final String modulePath;
+        public final boolean isRelative;
+
+        public PipeImport(List<String> names, String modulePath, boolean isRelative) {
+            this.names = Collections.unmodifiableList(names);
+            this.modulePath = modulePath;
+            this.isRelative = isRelative;
+        }
+    }
+}
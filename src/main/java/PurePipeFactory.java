@@ -0,0 +1,195 @@
+import com.intellij.lang.ecmascript6.psi.ES6ImportDeclaration;
+import com.intellij.lang.javascript.JSTokenTypes;
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptClass;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptFunction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which component methods can become pure pipes: methods that don't touch `this`, don't write anything
+ * but their own locals, don't read the page or a module's `let`s, and only use what they declare or import.
+ * Every call must be to a built-in known not to mutate or read outside state, or to a function whose own body passes
+ * the same check.
+ */
+public class PurePipeFactory {
+    //built-in functions and methods of the TypeScript libraries that neither change their arguments nor read
+    //the clock, randomness or the page, matched by name once the call resolves into one of those libraries
+    private static final Set<String> PURE_BUILT_INS = new HashSet<>(Arrays.asList(
+            "abs", "ceil", "floor", "round", "trunc", "sign", "min", "max", "pow", "sqrt",
+            "parseInt", "parseFloat", "isNaN", "isFinite", "isInteger", "Number", "String", "Boolean",
+            "encodeURIComponent", "decodeURIComponent", "keys", "values", "entries", "isArray", "from", "stringify", "parse",
+            "toFixed", "toPrecision", "toString", "toLocaleString", "toUpperCase", "toLowerCase", "trim", "trimStart", "trimEnd",
+            "padStart", "padEnd", "startsWith", "endsWith", "includes", "indexOf", "lastIndexOf", "charAt", "substring", "substr",
+            "slice", "split", "replace", "repeat", "concat", "localeCompare", "join", "map", "filter", "reduce", "some", "every",
+            "find", "findIndex", "format"));
+    //constructors that only build a new value from their arguments, `new Date()` without arguments reads the clock
+    private static final Set<String> PURE_CONSTRUCTORS = new HashSet<>(Arrays.asList(
+            "Date", "Set", "Map", "Array", "RegExp", "NumberFormat", "DateTimeFormat"));
+    private static final Pattern NAMED_IMPORT = Pattern.compile("import\\s*\\{([^}]*)}\\s*from\\s*['\"]([^'\"]+)['\"]");
+    private static final Pattern OTHER_IMPORT = Pattern.compile("import\\s+(?:\\*\\s*as\\s+)?([\\w$]+)");
+
+    public static @Nullable PipeDefinition FromMethod(TypeScriptFunction method, @Nullable String returnType, ExtractionMetrics metrics) {
+        if (method.isGetProperty() || method.isSetProperty() || method.getName() == null) return null;
+        JSBlockStatement body = PsiTreeUtil.getChildOfType(method, JSBlockStatement.class);
+        JSParameterList parameterList = method.getParameterList();
+        if (body == null || parameterList == null || parameterList.getParameters().length == 0) return null;
+        if (!IsSideEffectFree(method, body, true, new HashSet<>(), metrics)) return null;
+
+        List<PipeDefinition.PipeImport> imports = UsedImports(method.getContainingFile(), method.getText());
+        if (imports == null) return null;
+        TypeScriptClass componentClass = PsiTreeUtil.getParentOfType(method, TypeScriptClass.class);
+        return new PipeDefinition(componentClass == null ? null : componentClass.getName(), method.getName(), parameterList.getText(),
+                returnType, body.getText(), imports);
+    }
+
+    /**
+     * @param isPipeMethod the body is copied into the pipe, so it may only use what the pipe's file can import
+     * @param checking     the functions being checked further up, a recursive call is judged by the outer check
+     */
+    private static boolean IsSideEffectFree(JSFunction function, JSBlockStatement body, boolean isPipeMethod, Set<JSFunction> checking,
+                                            ExtractionMetrics metrics) {
+        checking.add(function);
+        for (PsiElement element : PsiTreeUtil.findChildrenOfAnyType(body, JSThisExpression.class, JSSuperExpression.class,
+                JSAssignmentExpression.class, JSPrefixExpression.class, JSPostfixExpression.class, JSReferenceExpression.class,
+                JSCallExpression.class)) {
+            ProgressManager.checkCanceled();
+            if (element instanceof JSThisExpression || element instanceof JSSuperExpression) return false;
+            if (element instanceof JSNewExpression && !IsPureConstructor((JSNewExpression) element, metrics)) return false;
+            if (!(element instanceof JSNewExpression) && element instanceof JSCallExpression
+                    && !IsPureCall((JSCallExpression) element, checking, metrics)) return false;
+            if (element instanceof JSAssignmentExpression && !WritesLocal(((JSAssignmentExpression) element).getLOperand(), body)) return false;
+            if (element instanceof JSPrefixExpression && IsIncrement(((JSPrefixExpression) element).getOperationSign())
+                    && !WritesLocal(((JSPrefixExpression) element).getExpression(), body)) return false;
+            if (element instanceof JSPostfixExpression && IsIncrement(((JSPostfixExpression) element).getOperationSign())
+                    && !WritesLocal(((JSPostfixExpression) element).getExpression(), body)) return false;
+            if (element instanceof JSReferenceExpression && !IsPureReference((JSReferenceExpression) element, function, isPipeMethod, metrics)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reading the page, `window.innerWidth` or `document.title`, or a variable its module may reassign gives a different
+     * result without the arguments changing, which a pure pipe wouldn't notice.
+     */
+    private static boolean IsPureReference(JSReferenceExpression reference, JSFunction function, boolean isPipeMethod,
+                                           ExtractionMetrics metrics) {
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
+        PsiElement declaration = reference.resolve();
+        if (declaration == null) return true;
+        if (isPipeMethod && reference.getQualifier() == null && UsesFileLocalDeclaration(declaration, function)) return false;
+        if (!(declaration instanceof JSVariable) || declaration instanceof JSParameter) return true;
+        PsiFile file = declaration.getContainingFile();
+        if (file != null && "lib.dom.d.ts".equals(file.getName())) return false;
+        return ((JSVariable) declaration).isConst() || IsLibraryDeclaration(declaration)
+                || PsiTreeUtil.getParentOfType(declaration, JSFunction.class, TypeScriptClass.class) != null;
+    }
+
+    /**
+     * `items.sort()`, `console.log()` and `Date.now()` resolve into the libraries too but aren't in {@link #PURE_BUILT_INS}.
+     */
+    private static boolean IsPureCall(JSCallExpression callExpression, Set<JSFunction> checking, ExtractionMetrics metrics) {
+        JSExpression methodExpression = callExpression.getMethodExpression();
+        if (!(methodExpression instanceof JSReferenceExpression)) return false;
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
+        PsiElement callee = ((JSReferenceExpression) methodExpression).resolve();
+        if (callee == null) return false;
+        if (IsLibraryDeclaration(callee)) return PURE_BUILT_INS.contains(((JSReferenceExpression) methodExpression).getReferenceName());
+        if (!(callee instanceof JSFunction)) return false;
+        if (checking.contains(callee)) return true;
+        JSBlockStatement calleeBody = PsiTreeUtil.getChildOfType(callee, JSBlockStatement.class);
+        return calleeBody != null && IsSideEffectFree((JSFunction) callee, calleeBody, false, checking, metrics);
+    }
+
+    private static boolean IsPureConstructor(JSNewExpression newExpression, ExtractionMetrics metrics) {
+        JSExpression constructorExpression = newExpression.getMethodExpression();
+        if (!(constructorExpression instanceof JSReferenceExpression)) return false;
+        String name = ((JSReferenceExpression) constructorExpression).getReferenceName();
+        if (!PURE_CONSTRUCTORS.contains(name) || "Date".equals(name) && newExpression.getArguments().length == 0) return false;
+        metrics.Count(ExtractionMetrics.RESOLVE_CALLS);
+        PsiElement constructor = ((JSReferenceExpression) constructorExpression).resolve();
+        return constructor != null && IsLibraryDeclaration(constructor);
+    }
+
+    /**
+     * The standard library typings TypeScript ships, like lib.es5.d.ts and lib.dom.d.ts.
+     */
+    private static boolean IsLibraryDeclaration(PsiElement declaration) {
+        PsiFile file = declaration.getContainingFile();
+        String fileName = file == null ? "" : file.getName();
+        return fileName.startsWith("lib.") && fileName.endsWith(".d.ts");
+    }
+
+    private static boolean IsIncrement(@Nullable Object operationSign) {
+        return operationSign == JSTokenTypes.PLUSPLUS || operationSign == JSTokenTypes.MINUSMINUS;
+    }
+
+    /**
+     * Only a plain local variable may be written, a property write could change an argument the caller still holds.
+     */
+    private static boolean WritesLocal(@Nullable JSExpression target, JSBlockStatement body) {
+        if (target instanceof JSDefinitionExpression) target = ((JSDefinitionExpression) target).getExpression();
+        if (!(target instanceof JSReferenceExpression) || ((JSReferenceExpression) target).getQualifier() != null) return false;
+        PsiElement declaration = ((JSReferenceExpression) target).resolve();
+        return declaration instanceof JSVariable && !(declaration instanceof JSParameter) && PsiTreeUtil.isAncestor(body, declaration, true);
+    }
+
+    /**
+     * A constant or function declared next to the component isn't visible from the pipe's file.
+     */
+    private static boolean UsesFileLocalDeclaration(PsiElement declaration, JSFunction method) {
+        return declaration.getContainingFile() == method.getContainingFile()
+                && !PsiTreeUtil.isAncestor(method, declaration, false);
+    }
+
+    /**
+     * @return the named imports of the file that the text uses, null when it uses a default or namespace import
+     */
+    static @Nullable List<PipeDefinition.PipeImport> UsedImports(PsiFile file, String text) {
+        VirtualFile directory = file.getVirtualFile() == null ? null : file.getVirtualFile().getParent();
+        List<PipeDefinition.PipeImport> imports = new ArrayList<>();
+        for (ES6ImportDeclaration importDeclaration : PsiTreeUtil.findChildrenOfType(file, ES6ImportDeclaration.class)) {
+            String importText = importDeclaration.getText();
+            Matcher namedImport = NAMED_IMPORT.matcher(importText);
+            if (!namedImport.find()) {
+                Matcher otherImport = OTHER_IMPORT.matcher(importText);
+                if (otherImport.find() && IsUsed(otherImport.group(1), text)) return null;
+                continue;
+            }
+            List<String> names = new ArrayList<>();
+            for (String specifier : StringUtil.split(namedImport.group(1), ",")) {
+                String localName = specifier.contains(" as ") ? StringUtil.substringAfterLast(specifier, " as ") : specifier;
+                if (IsUsed(localName.trim(), text)) names.add(specifier.trim());
+            }
+            if (names.isEmpty()) continue;
+            String modulePath = namedImport.group(2);
+            boolean isRelative = modulePath.startsWith(".");
+            if (isRelative) {
+                if (directory == null) return null;
+                modulePath = FileUtil.toCanonicalPath(directory.getPath() + "/" + modulePath);
+            }
+            imports.add(new PipeDefinition.PipeImport(names, modulePath, isRelative));
+        }
+        return imports;
+    }
+
+    private static boolean IsUsed(String name, String text) {
+        return !name.isEmpty() && Pattern.compile("(?<![\\w$.])" + Pattern.quote(name) + "(?![\\w$])").matcher(text).find();
+    }
+}
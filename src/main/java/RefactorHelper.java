@@ -1,256 +1,364 @@
 import com.google.common.base.CaseFormat;
+import com.intellij.lang.css.CssFileType;
 import com.intellij.lang.javascript.TypeScriptFileType;
-import com.intellij.lang.javascript.psi.JSElementFactory;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.lang.javascript.psi.JSBlockStatement;
+import com.intellij.lang.javascript.psi.JSParameterList;
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptFunction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ModuleRootModificationUtil;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.CodeStyleManager;
-import com.intellij.psi.xml.XmlAttribute;
-import org.angular2.lang.expr.psi.Angular2Interpolation;
-import org.angular2.lang.expr.psi.Angular2RecursiveVisitor;
-import org.angular2.lang.expr.psi.Angular2TemplateBinding;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.IncorrectOperationException;
 import org.angular2.lang.html.Angular2HtmlLanguage;
-import org.angular2.lang.html.psi.Angular2HtmlBananaBoxBinding;
-import org.angular2.lang.html.psi.Angular2HtmlEvent;
-import org.angular2.lang.html.psi.Angular2HtmlPropertyBinding;
-import org.angular2.lang.html.psi.Angular2HtmlRecursiveElementVisitor;
-import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class RefactorHelper {
     private final Project project;
-    private final PsiElement[] rootElements;
+    private final ExtractionMetrics metrics;
+    private final Map<PsiFile, ResolutionCache> resolutionCaches = new HashMap<>();
 
-    public RefactorHelper(Project project, PsiElement rootElement) {
-        this.project = project;
-        this.rootElements = rootElement == null ? new PsiElement[0] : new PsiElement[]{rootElement};
+    public RefactorHelper(Project project) {
+        this(project, new ExtractionMetrics());
     }
 
-    public RefactorHelper(Project project, PsiElement[] rootElements) {
+    public RefactorHelper(Project project, ExtractionMetrics metrics) {
         this.project = project;
-        this.rootElements = rootElements;
+        this.metrics = metrics;
     }
 
-    public void DoRefactor(String componentNameCamelCase) {
-        if (rootElements.length == 0) return;
-
-
-        componentNameCamelCase = StringUtil.capitalize(componentNameCamelCase);
-
-        PsiFile containingFile = rootElements[0].getContainingFile();
-        PsiDirectory containingDirectory = containingFile.getContainingDirectory();
-
-        Set<AngularBinding> bindings = new HashSet<>();
-
-        Set<AngularEvent> actions = new HashSet<>();
-        List<PsiElement> newElements = new ArrayList<>();
-
-        for (PsiElement rootElement : rootElements) {
-            PsiElement elementNew = rootElement.copy();
-            newElements.add(elementNew);
-            VisitElement(elementNew, bindings, actions);
+    public List<ExtractionPlan> Analyze(List<ExtractionRequest> requests) {
+        List<ExtractionPlan> plans = new ArrayList<>();
+        for (ExtractionRequest request : requests) {
+            ProgressManager.checkCanceled();
+            ExtractionPlan plan = Analyze(request.elements, request.componentNameCamelCase, request.lazyModule);
+            if (plan != null) plans.add(plan);
         }
+        return plans;
+    }
 
-        String componentHyphen = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_HYPHEN, componentNameCamelCase);
-        StringBuilder htmlBuilder = InvokeTemplate(componentHyphen, bindings, actions);
-        CleanupOtherElements();
-        rootElements[0].replace(XmlElementFactory.getInstance(project).createTagFromText(htmlBuilder.toString(), Angular2HtmlLanguage.INSTANCE));
-        StringBuilder jsBuilder = RenderComponentJs(componentNameCamelCase, componentHyphen, bindings, actions);
-        PsiFile newTs = PsiFileFactory.getInstance(project).createFileFromText(componentHyphen + ".component.ts", TypeScriptFileType.INSTANCE, jsBuilder.toString());
-        containingDirectory.add(newTs);
+    public ExtractionPlan Analyze(PsiElement[] rootElements, String componentNameCamelCase) {
+        return Analyze(rootElements, componentNameCamelCase, false);
+    }
 
-        String componentHtml = RenderComponentHtml(newElements, bindings, actions);
-        PsiFile newHtml = PsiFileFactory.getInstance(project)
-                .createFileFromText(componentHyphen + ".component.html", Angular2HtmlLanguage.INSTANCE, componentHtml);
-        containingDirectory.add(newHtml);
+    /**
+     * @param lazyModule renders a feature module with a route to the component and a link to it in place of the fragment
+     */
+    public ExtractionPlan Analyze(PsiElement[] rootElements, String componentNameCamelCase, boolean lazyModule) {
+        if (rootElements.length == 0) return null;
 
-        CodeStyleManager.getInstance(project).reformat(newHtml);
-        CodeStyleManager.getInstance(project).reformat(newTs);
-        Module module = ModuleUtil.findModuleForFile(containingFile);
-        if (module != null) {
-            ModuleRootModificationUtil.addContentRoot(module, newHtml.getVirtualFile());
-            ModuleRootModificationUtil.addContentRoot(module, containingDirectory.getVirtualFile().getPath() + "\\" + newTs.getName());
+        componentNameCamelCase = StringUtil.capitalize(componentNameCamelCase);
+
+        PsiFile templateFile = rootElements[0].getContainingFile();
+        //selections from the same template share what was resolved already
+        ResolutionCache resolutionCache = resolutionCaches.computeIfAbsent(templateFile, ResolutionCache::new);
+        TextRange selectionRange = new TextRange(rootElements[0].getTextRange().getStartOffset(),
+                rootElements[rootElements.length - 1].getTextRange().getEndOffset());
+        TemplateAnalysis analysis = AnalysisCache.GetOrAnalyze(templateFile, selectionRange,
+                () -> new TemplateAnalyzer(resolutionCache, metrics).Analyze(rootElements));
+
+        String name = componentNameCamelCase;
+        String componentHyphen = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_HYPHEN, name);
+        //a routed component updates its fields from the query parameters, which OnPush wouldn't render
+        boolean onPushRequested = ExtractComponentSettings.getInstance().onPushChangeDetection && !lazyModule;
+        //a write to an input would only be seen by the new component, the default strategy keeps the parent in sync
+        boolean onPush = onPushRequested && analysis.IsOnPushSafe();
+        String changeDetectionWarning = onPushRequested && !onPush ? ChangeDetectionWarning(name, analysis) : null;
+        //the analysis only matches styles when migrating them is on
+        boolean migrateStyles = analysis.styles != null && !analysis.styles.rules.isEmpty();
+        String stylesWarning = analysis.styles == null ? null : analysis.styles.UnmigratedWarning(name);
+        List<String> routingBlockers = new ArrayList<>();
+        String routePath = null;
+        String directoryPath = templateFile.getVirtualFile().getParent().getPath() + (lazyModule ? "/" + componentHyphen : "");
+        //the module is looked up in the index here, in smart mode, the write command only inserts the entries
+        NgModuleRegistrar registrar = new NgModuleRegistrar(project);
+        NgModuleEdit moduleEdit = null;
+        //the names of what the fragment uses, the feature module has to provide them
+        FastTemplateAnalysis markup = lazyModule ? FastTemplateAnalyzer.Analyze(analysis.fragmentText) : null;
+        if (lazyModule) {
+            routingBlockers.addAll(RoutingBoundary.Blockers(analysis, markup));
+            NgModuleRegistrar.Routes routes = registrar.FindRoutes(templateFile);
+            if (routes == null) routingBlockers.add("no RouterModule routes were found for the module declaring the source component");
+            routePath = routes != null && !routes.isRoot ? componentHyphen : "/" + componentHyphen;
+            if (routes != null) {
+                moduleEdit = registrar.PlanLazyRoute(routes, componentHyphen, directoryPath + "/" + componentHyphen + ".module.ts", name + "Module");
+            }
+        } else if (ExtractComponentSettings.getInstance().declareInNgModule) {
+            Map<String, String> declaredFiles = new LinkedHashMap<>();
+            declaredFiles.put(name + "Component", componentHyphen + ".component.ts");
+            for (PipeDefinition pipe : analysis.pipes) {
+                declaredFiles.put(pipe.className, pipe.fileName);
+            }
+            moduleEdit = registrar.PlanDeclarations(templateFile, directoryPath, declaredFiles);
         }
-        VirtualFileManager.getInstance().asyncRefresh(null);
+        String linkPath = routePath;
+        NgModuleEdit plannedModuleEdit = moduleEdit;
+        return metrics.Time(ExtractionMetrics.RENDERING, () -> {
+            ComponentEmitter emitter = new ComponentEmitter(templateFile);
+            String invocationHtml = lazyModule
+                    ? emitter.RenderRouterLink(componentHyphen, linkPath, analysis)
+                    : emitter.RenderInvocation(componentHyphen, analysis);
+            String componentTs = lazyModule
+                    ? emitter.RenderRoutedComponentTs(name, componentHyphen, analysis, migrateStyles, directoryPath)
+                    : emitter.RenderComponentTs(name, componentHyphen, analysis, onPush, migrateStyles, directoryPath);
+            String componentHtml = emitter.RenderComponentHtml(analysis);
+            metrics.Count(ExtractionMetrics.BYTES_GENERATED, invocationHtml.length() + componentTs.length() + componentHtml.length());
+            Map<PipeDefinition, String> pipesTs = new LinkedHashMap<>();
+            for (PipeDefinition pipe : analysis.pipes) {
+                String pipeTs = emitter.RenderPipeTs(pipe, directoryPath);
+                metrics.Count(ExtractionMetrics.BYTES_GENERATED, pipeTs.length());
+                pipesTs.put(pipe, pipeTs);
+            }
+            String componentCss = migrateStyles ? emitter.RenderComponentCss(analysis.styles) : null;
+            if (componentCss != null) metrics.Count(ExtractionMetrics.BYTES_GENERATED, componentCss.length());
+            String moduleTs = lazyModule
+                    ? emitter.RenderFeatureModuleTs(name, componentHyphen, analysis.pipes, RoutingBoundary.FormsModules(markup))
+                    : null;
+            if (moduleTs != null) metrics.Count(ExtractionMetrics.BYTES_GENERATED, moduleTs.length());
+            return new ExtractionPlan(name, componentHyphen, invocationHtml, componentTs, componentHtml, analysis, onPush,
+                    changeDetectionWarning, pipesTs, componentCss, stylesWarning, moduleTs, routingBlockers, plannedModuleEdit);
+        });
     }
 
-    private void CleanupOtherElements() {
-        if (rootElements.length == 1) return;
-        PsiElement secondElement = rootElements[0].getNextSibling();
-        PsiElement lastElement = rootElements[rootElements.length - 1];
-        secondElement.getParent().deleteChildRange(secondElement, lastElement);
+    private static String ChangeDetectionWarning(String componentNameCamelCase, TemplateAnalysis analysis) {
+        StringBuilder warning = new StringBuilder(componentNameCamelCase)
+                .append("Component uses the default change detection, OnPush would hide these writes from its parent:");
+        for (InputMutation inputMutation : analysis.inputMutations) {
+            warning.append("\n").append(inputMutation);
+        }
+        return warning.toString();
     }
 
-    private void VisitElement(PsiElement elementNew, Set<AngularBinding> bindings, Set<AngularEvent> actions) {
-        elementNew.acceptChildren(new Angular2HtmlRecursiveElementVisitor() {
-            @Override
-            public void visitBananaBoxBinding(Angular2HtmlBananaBoxBinding bananaBoxBinding) {
-                bindings.add(new Angular2WayBinding(bananaBoxBinding));
+    /**
+     * Creates every component file before touching a template. When anything fails, the files created so far are removed
+     * and the templates, stylesheets and modules edited so far get their text back.
+     *
+     * @throws IncorrectOperationException when a template or a module changed since the analysis, a component file can't be created
+     * or a fragment can't be loaded through a route
+     */
+    public void Apply(List<ExtractionPlan> plans) throws IncorrectOperationException {
+        Map<ExtractionPlan, PsiFile> templateFiles = new HashMap<>();
+        for (ExtractionPlan plan : plans) {
+            PsiFile templateFile = plan.FindTemplateFile(project);
+            if (templateFile == null) throw new IncorrectOperationException("The template was changed during analysis, please try again");
+            if (!plan.routingBlockers.isEmpty()) {
+                throw new IncorrectOperationException(plan.componentNameCamelCase + "Component can't be loaded lazily: " + plan.routingBlockers.get(0));
             }
-
-            @Override
-            public void visitEvent(Angular2HtmlEvent event) {
-                actions.add(new AngularEvent(event.getAction()));
+            if (plan.moduleEdit != null && plan.moduleEdit.FindDocument(project) == null) {
+                throw new IncorrectOperationException(plan.moduleEdit.moduleFile.getName() + " was changed during analysis, please try again");
             }
-
-            @Override
-            public void visitPropertyBinding(Angular2HtmlPropertyBinding propertyBinding) {
-                bindings.add(new AngularBinding(propertyBinding.getBinding(), false));
+            PsiDirectory directory = templateFile.getContainingDirectory();
+            for (PipeDefinition pipe : plan.pipesTs.keySet()) {
+                PsiFile existingPipe = plan.IsLazyModule() || directory == null ? null : directory.findFile(pipe.fileName);
+                if (existingPipe != null && !HasSameTransform(existingPipe, pipe)) {
+                    throw new IncorrectOperationException(pipe.fileName + " already exists with a different transform, "
+                            + "rename it or turn off pure pipe generation");
+                }
             }
+            templateFiles.put(plan, templateFile);
+        }
 
-//            @Override
-//            public void visitVariable(Angular2HtmlVariable variable) {
-//                super.visitVariable(variable);
-//            }
-
-//            @Override
-//            public void visitTemplateBindings(Angular2HtmlTemplateBindingsImpl bindings) {
-//                super.visitTemplateBindings(bindings);
-//            }
-
-//            @Override
-//            public void visitReference(Angular2HtmlReference reference) {
-            //do something with html references the #name kind
-//            }
-//
-//            @Override
-//            public void visitBoundAttribute(Angular2HtmlBoundAttribute boundAttribute) {
-//                super.visitBoundAttribute(boundAttribute);
-//            }
-//
-//            @Override
-//            public void visitExpansionForm(Angular2HtmlExpansionForm expansion) {
-//                super.visitExpansionForm(expansion);
-//            }
-//
-//            @Override
-//            public void visitExpansionFormCase(Angular2HtmlExpansionFormCaseImpl expansionCase) {
-//                super.visitExpansionFormCase(expansionCase);
-//            }
-        });
-
-        elementNew.acceptChildren(new Angular2RecursiveVisitor() {
-            @Override
-            public void visitAngular2Interpolation(Angular2Interpolation interpolation) {
-                bindings.add(new AngularBinding(interpolation, false));
+        List<PsiFile> createdFiles = new ArrayList<>();
+        List<PsiDirectory> createdDirectories = new ArrayList<>();
+        Map<Document, CharSequence> originalTexts = SnapshotDocuments(plans, templateFiles);
+        try {
+            metrics.Time(ExtractionMetrics.FILE_CREATION, () -> {
+                for (ExtractionPlan plan : plans) {
+                    PsiDirectory directory = templateFiles.get(plan).getContainingDirectory();
+                    if (plan.IsLazyModule()) {
+                        //a feature module gets a directory of its own, like the CLI generates them
+                        directory.checkCreateSubdirectory(plan.componentHyphen);
+                        directory = directory.createSubdirectory(plan.componentHyphen);
+                        createdDirectories.add(directory);
+                    }
+                    CreateComponentFiles(plan, directory, createdFiles);
+                }
+            });
+            if (ExtractComponentSettings.getInstance().reformatGeneratedFiles) {
+                metrics.Time(ExtractionMetrics.REFORMAT, () -> {
+                    for (PsiFile createdFile : createdFiles) {
+                        CodeStyleManager.getInstance(project).reformat(createdFile);
+                    }
+                });
             }
 
-            @Override
-            public void visitAngular2TemplateBinding(Angular2TemplateBinding templateBinding) {
-
-                bindings.add(new AngularBinding(templateBinding, false));
+            metrics.Time(ExtractionMetrics.TEMPLATE_EDITS, () -> ReplaceSelections(plans, templateFiles));
+            metrics.Time(ExtractionMetrics.STYLE_EDITS, () -> RemoveMovedStyleRules(plans));
+            metrics.Time(ExtractionMetrics.MODULE_UPDATE,
+                    () -> metrics.Count(ExtractionMetrics.PSI_EDITS, new NgModuleRegistrar(project).Apply(plans)));
+        } catch (RuntimeException e) {
+            PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+            for (Map.Entry<Document, CharSequence> originalText : originalTexts.entrySet()) {
+                if (StringUtil.equals(originalText.getKey().getImmutableCharSequence(), originalText.getValue())) continue;
+                originalText.getKey().setText(originalText.getValue());
+                documentManager.commitDocument(originalText.getKey());
             }
-        });
-    }
-
-    @NotNull
-    private StringBuilder InvokeTemplate(String componentName, Collection<AngularBinding> bindings, Set<AngularEvent> events) {
-        StringBuilder htmlBuilder = new StringBuilder();
-        htmlBuilder.append("<app-").append(componentName);
-        AddInvokeInputReferences(bindings, htmlBuilder);
-        AddInvokeEventReferences(events, htmlBuilder);
-        htmlBuilder.append(">");
-        htmlBuilder.append("</app-").append(componentName).append(">");
-        return htmlBuilder;
+            for (PsiFile createdFile : createdFiles) {
+                if (createdFile.isValid()) createdFile.delete();
+            }
+            for (PsiDirectory createdDirectory : createdDirectories) {
+                if (createdDirectory.isValid()) createdDirectory.delete();
+            }
+            throw e;
+        }
     }
 
-    private void AddInvokeInputReferences(Collection<AngularBinding> bindings, StringBuilder htmlBuilder) {
-        TransformForRendering(bindings)
-                .forEach(inputField -> {
-                    if (inputField.isTwoWay) {
-                        htmlBuilder.append(" [(").append(inputField.fieldName).append(")]=");
-                    } else {
-                        htmlBuilder.append(" [").append(inputField.fieldName).append("]=");
-                    }
-                    htmlBuilder.append('"').append(inputField.originalBody).append('"');
-                });
+    /**
+     * The text of every document the plans edit, the templates, the parents' stylesheets and the modules,
+     * taken before the first edit so a failure can put them back.
+     */
+    private Map<Document, CharSequence> SnapshotDocuments(List<ExtractionPlan> plans, Map<ExtractionPlan, PsiFile> templateFiles) {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        List<PsiFile> editedFiles = new ArrayList<>();
+        for (ExtractionPlan plan : plans) {
+            editedFiles.add(templateFiles.get(plan));
+            MigratedStyles styles = plan.analysis.styles;
+            if (plan.componentCss != null && styles != null && styles.stylesheet.isValid()) {
+                editedFiles.add(PsiManager.getInstance(project).findFile(styles.stylesheet));
+            }
+            if (plan.moduleEdit != null) editedFiles.add(PsiManager.getInstance(project).findFile(plan.moduleEdit.moduleFile));
+        }
+        Map<Document, CharSequence> originalTexts = new LinkedHashMap<>();
+        for (PsiFile editedFile : editedFiles) {
+            Document document = editedFile == null ? null : documentManager.getDocument(editedFile);
+            if (document != null) originalTexts.putIfAbsent(document, document.getImmutableCharSequence());
+        }
+        return originalTexts;
     }
 
-    private Stream<InputField> TransformForRendering(Collection<AngularBinding> bindings) {
-        //sorted so 2 way bindings come first
-        return bindings.stream().sorted((o1, o2) -> Boolean.compare(o2.isTwoWayBinding, o1.isTwoWayBinding)).flatMap(angularBinding -> angularBinding.inputFields.stream()).distinct();
+    private void ReplaceSelections(List<ExtractionPlan> plans, Map<ExtractionPlan, PsiFile> templateFiles) {
+        List<ExtractionPlan> sortedPlans = new ArrayList<>(plans);
+        //replacing from the end keeps the ranges of the other selections in the same template valid
+        sortedPlans.sort(Comparator.comparingInt((ExtractionPlan plan) -> plan.SelectionRange().getStartOffset()).reversed());
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        Set<Document> changedDocuments = new LinkedHashSet<>();
+        for (ExtractionPlan plan : sortedPlans) {
+            Document document = documentManager.getDocument(templateFiles.get(plan));
+            if (document == null) continue;
+            TextRange selectionRange = plan.SelectionRange();
+            document.replaceString(selectionRange.getStartOffset(), selectionRange.getEndOffset(), plan.invocationHtml);
+            metrics.Count(ExtractionMetrics.PSI_EDITS);
+            changedDocuments.add(document);
+        }
+        for (Document document : changedDocuments) {
+            documentManager.commitDocument(document);
+        }
     }
 
-    private void AddInvokeEventReferences(Set<AngularEvent> events, StringBuilder htmlBuilder) {
-        for (AngularEvent event : events) {
-            htmlBuilder.append(" (").append(event.eventName).append(")=");
-            htmlBuilder.append('"').append(event.action.getText()).append('"');
+    /**
+     * The rules now only used by the new components are removed from the parents' stylesheets, all rules of one stylesheet
+     * at once and from the end so the analyzed ranges stay valid. A stylesheet edited since the analysis is left alone.
+     */
+    private void RemoveMovedStyleRules(List<ExtractionPlan> plans) {
+        Map<VirtualFile, Set<TextRange>> movedRanges = new LinkedHashMap<>();
+        Set<VirtualFile> changedStylesheets = new HashSet<>();
+        for (ExtractionPlan plan : plans) {
+            MigratedStyles styles = plan.analysis.styles;
+            if (plan.componentCss == null || styles == null || !styles.stylesheet.isValid()) continue;
+            PsiFile stylesheetFile = PsiManager.getInstance(project).findFile(styles.stylesheet);
+            if (stylesheetFile == null || stylesheetFile.getModificationStamp() != styles.modificationStamp) changedStylesheets.add(styles.stylesheet);
+            Set<TextRange> ranges = movedRanges.computeIfAbsent(styles.stylesheet, stylesheet -> new HashSet<>());
+            for (StyleRule rule : styles.movedRules) {
+                ranges.add(rule.range);
+            }
+        }
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        for (Map.Entry<VirtualFile, Set<TextRange>> stylesheetRanges : movedRanges.entrySet()) {
+            if (changedStylesheets.contains(stylesheetRanges.getKey()) || stylesheetRanges.getValue().isEmpty()) continue;
+            PsiFile stylesheetFile = PsiManager.getInstance(project).findFile(stylesheetRanges.getKey());
+            Document document = stylesheetFile == null ? null : documentManager.getDocument(stylesheetFile);
+            if (document == null) continue;
+            List<TextRange> ranges = new ArrayList<>(stylesheetRanges.getValue());
+            ranges.sort(Comparator.comparingInt(TextRange::getStartOffset).reversed());
+            for (TextRange range : ranges) {
+                document.deleteString(range.getStartOffset(), LineEndAfter(document.getCharsSequence(), range.getEndOffset()));
+                metrics.Count(ExtractionMetrics.PSI_EDITS);
+            }
+            documentManager.commitDocument(document);
         }
     }
 
-    private String RenderComponentHtml(List<PsiElement> element, Set<AngularBinding> bindings, Set<AngularEvent> actions) {
-        bindings.stream().flatMap(angularBinding -> angularBinding.callExpressions.stream()).forEach(jsCallExpression -> {
-            JSElementFactory.replaceExpression(jsCallExpression, AngularBinding.callExpressionFieldName(jsCallExpression));
-        });
-        bindings.stream().filter(AngularBinding::isTwoWayBinding).forEach(angularBinding -> {
-            Angular2WayBinding angular2WayBinding = (Angular2WayBinding) angularBinding;
-            InputField inputField = angular2WayBinding.getInputField();
-            String attributeName = String.format("(%sChange)", angular2WayBinding.bananaBoxBinding.getPropertyName());
-            String value = inputField.fieldName + "Change.emit($event)";
-            XmlAttribute attribute = XmlElementFactory.getInstance(project).createAttribute(attributeName, value, angular2WayBinding.bananaBoxBinding);
-            angular2WayBinding.bananaBoxBinding.getParent().addAfter(attribute, angular2WayBinding.bananaBoxBinding);
-        });
-        return element.stream().map(PsiElement::getText).collect(Collectors.joining(""));
+    /**
+     * Takes the blank space after a rule with it, up to and including the line break.
+     */
+    private static int LineEndAfter(CharSequence text, int offset) {
+        int end = offset;
+        while (end < text.length() && (text.charAt(end) == ' ' || text.charAt(end) == '\t')) end++;
+        if (end < text.length() && text.charAt(end) == '\r') end++;
+        if (end < text.length() && text.charAt(end) == '\n') end++;
+        return end;
     }
 
-    @NotNull
-    private StringBuilder RenderComponentJs(String componentNameCamelCase, String componentHyphen, Set<AngularBinding> bindings, Set<AngularEvent> events) {
-        StringBuilder jsBuilder = new StringBuilder();
-        jsBuilder.append("import{Component");
+    private void CreateComponentFiles(ExtractionPlan plan, PsiDirectory containingDirectory, List<PsiFile> createdFiles) {
+        String tsName = plan.componentHyphen + ".component.ts";
+        String htmlName = plan.componentHyphen + ".component.html";
+        String cssName = plan.componentHyphen + ".component.css";
+        containingDirectory.checkCreateFile(tsName);
+        containingDirectory.checkCreateFile(htmlName);
+        if (plan.componentCss != null) containingDirectory.checkCreateFile(cssName);
 
-        if (!bindings.isEmpty()) jsBuilder.append(",Input");
-        if (!events.isEmpty() || bindings.stream().anyMatch(AngularBinding::isTwoWayBinding))
-            jsBuilder.append(",Output,EventEmitter");
-        jsBuilder.append("}from'@angular/core';\n");
-        jsBuilder.append("@Component({selector:'app-").append(componentHyphen).append("', templateUrl:'./").append(componentHyphen).append(".component.html',styles:[]})\n");
-        jsBuilder.append("export class ").append(componentNameCamelCase).append("Component{\n");
-        AddJsInputReferences(bindings, jsBuilder);
-        AddJsEvents(events, jsBuilder);
-        jsBuilder.append("}");
-        return jsBuilder;
-    }
+        PsiFile newTs = PsiFileFactory.getInstance(project).createFileFromText(tsName, TypeScriptFileType.INSTANCE, plan.componentTs);
+        newTs = (PsiFile) containingDirectory.add(newTs);
+        metrics.Count(ExtractionMetrics.PSI_EDITS);
+        createdFiles.add(newTs);
 
-    private void AddJsInputReferences(Set<AngularBinding> bindings, StringBuilder jsBuilder) {
-        TransformForRendering(bindings).forEach(inputField -> {
-            if (inputField.isTwoWay) {
-                AddJs2WayBinding(jsBuilder, inputField);
-            } else {
-                AddJsInput(jsBuilder, inputField);
-            }
-        });
-    }
+        PsiFile newHtml = PsiFileFactory.getInstance(project)
+                .createFileFromText(htmlName, Angular2HtmlLanguage.INSTANCE, plan.componentHtml);
+        newHtml = (PsiFile) containingDirectory.add(newHtml);
+        metrics.Count(ExtractionMetrics.PSI_EDITS);
+        createdFiles.add(newHtml);
+
+        if (plan.moduleTs != null) {
+            String moduleName = plan.componentHyphen + ".module.ts";
+            containingDirectory.checkCreateFile(moduleName);
+            PsiFile newModule = PsiFileFactory.getInstance(project).createFileFromText(moduleName, TypeScriptFileType.INSTANCE, plan.moduleTs);
+            newModule = (PsiFile) containingDirectory.add(newModule);
+            metrics.Count(ExtractionMetrics.PSI_EDITS);
+            createdFiles.add(newModule);
+        }
 
-    private void AddJsInput(StringBuilder jsBuilder, InputField inputField) {
-        jsBuilder.append("@Input()").append(inputField.fieldName);
-        if (inputField.fieldType != null) jsBuilder.append(":").append(inputField.fieldType);
-        jsBuilder.append(";\n");
-    }
+        if (plan.componentCss != null) {
+            PsiFile newCss = PsiFileFactory.getInstance(project).createFileFromText(cssName, CssFileType.INSTANCE, plan.componentCss);
+            newCss = (PsiFile) containingDirectory.add(newCss);
+            metrics.Count(ExtractionMetrics.PSI_EDITS);
+            createdFiles.add(newCss);
+        }
 
-    private void AddJs2WayBinding(StringBuilder jsBuilder, InputField inputField) {
-        jsBuilder.append("@Output()").append(inputField.fieldName).append("Change");
-        jsBuilder.append("=new EventEmitter<").append(inputField.fieldType).append(">()");
-        jsBuilder.append(";\n");
-        AddJsInput(jsBuilder, inputField);
+        for (Map.Entry<PipeDefinition, String> pipeTs : plan.pipesTs.entrySet()) {
+            String pipeName = pipeTs.getKey().fileName;
+            //an earlier extraction from the same component generated it already, Apply checked it has the same transform
+            if (containingDirectory.findFile(pipeName) != null) continue;
+            PsiFile newPipe = PsiFileFactory.getInstance(project).createFileFromText(pipeName, TypeScriptFileType.INSTANCE, pipeTs.getValue());
+            newPipe = (PsiFile) containingDirectory.add(newPipe);
+            metrics.Count(ExtractionMetrics.PSI_EDITS);
+            createdFiles.add(newPipe);
+        }
     }
 
-    private void AddJsEvents(Set<AngularEvent> callExpressions, StringBuilder jsBuilder) {
-        for (AngularEvent event : callExpressions) {
-            AddJsEvent(jsBuilder, event.eventName);
+    /**
+     * Whitespace is ignored since the generated pipe may have been reformatted.
+     */
+    private static boolean HasSameTransform(PsiFile pipeFile, PipeDefinition pipe) {
+        for (TypeScriptFunction function : PsiTreeUtil.findChildrenOfType(pipeFile, TypeScriptFunction.class)) {
+            if (!"transform".equals(function.getName())) continue;
+            JSParameterList parameterList = function.getParameterList();
+            JSBlockStatement body = PsiTreeUtil.getChildOfType(function, JSBlockStatement.class);
+            return parameterList != null && body != null && WithoutWhitespace(parameterList.getText()).equals(WithoutWhitespace(pipe.parametersText))
+                    && WithoutWhitespace(body.getText()).equals(WithoutWhitespace(pipe.bodyText));
         }
+        return false;
     }
 
-    private void AddJsEvent(StringBuilder jsBuilder, String eventName) {
-        jsBuilder.append("@Output(\"").append(eventName).append("\")").append(eventName).append("Event");
-        jsBuilder.append("=new EventEmitter<").append("void").append(">()");
-        jsBuilder.append(";\n");
-        jsBuilder.append(eventName).append("() {");
-        jsBuilder.append("this.").append(eventName).append("Event.emit();}\n");
+    private static String WithoutWhitespace(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) builder.append(text.charAt(i));
+        }
+        return builder.toString();
     }
 }
@@ -0,0 +1,55 @@
+import com.intellij.lang.javascript.psi.JSReferenceExpression;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches reference resolution by reference text and enclosing template scope.
+ * Results are also cached on the template file until the next PSI change,
+ * so repeated extractions from the same template skip resolving them again.
+ * Safe to share between the threads resolving bindings concurrently.
+ */
+public class ResolutionCache {
+    private static final Key<CachedValue<Map<String, ResolvedReference>>> FILE_CACHE_KEY = Key.create("AngularExtractComponent.ResolutionCache");
+
+    private final Map<String, ResolvedReference> fileCache;
+    private final Map<Pair<PsiElement, String>, ResolvedReference> extractionCache = new ConcurrentHashMap<>();
+
+    public ResolutionCache(PsiFile templateFile) {
+        fileCache = CachedValuesManager.getCachedValue(templateFile, FILE_CACHE_KEY,
+                () -> CachedValueProvider.Result.create(new ConcurrentHashMap<>(), PsiModificationTracker.MODIFICATION_COUNT));
+    }
+
+    public @Nullable InputField ToInputField(JSReferenceExpression referenceExpression,
+                                             @Nullable PsiElement templateScope,
+                                             boolean isTwoWay,
+                                             TextRange selectionRange,
+                                             Function<JSReferenceExpression, ResolvedReference> resolver) {
+        String referenceText = referenceExpression.getText();
+        Pair<PsiElement, String> key = Pair.create(templateScope, referenceText);
+        ResolvedReference resolved = extractionCache.get(key);
+        if (resolved == null) {
+            String fileKey = (templateScope == null ? -1 : templateScope.getTextRange().getStartOffset()) + ":" + referenceText;
+            resolved = fileCache.get(fileKey);
+            if (resolved == null) {
+                //not computeIfAbsent, resolving under the bin lock would hold up the other workers and their cancellation
+                resolved = resolver.apply(referenceExpression);
+                ResolvedReference raced = fileCache.putIfAbsent(fileKey, resolved);
+                if (raced != null) resolved = raced;
+            }
+            extractionCache.put(key, resolved);
+        }
+        return resolved.ToInputField(referenceText, isTwoWay, selectionRange);
+    }
+}
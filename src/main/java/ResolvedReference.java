@@ -0,0 +1,54 @@
+import com.intellij.openapi.util.TextRange;
+
+import java.util.Objects;
+
+/**
+ * What a template reference resolved to, without holding on to any PSI.
+ */
+public class ResolvedReference {
+    public static final ResolvedReference NONE = new ResolvedReference(null, null);
+
+    public final String fieldName;
+    public final String fieldType;
+    /**
+     * Offset of the template variable declaration, -1 for component members.
+     */
+    public final int declarationOffset;
+
+    public ResolvedReference(String fieldName, String fieldType) {
+        this(fieldName, fieldType, -1);
+    }
+
+    private ResolvedReference(String fieldName, String fieldType, int declarationOffset) {
+        this.fieldName = fieldName;
+        this.fieldType = fieldType;
+        this.declarationOffset = declarationOffset;
+    }
+
+    public ResolvedReference DeclaredAt(int declarationOffset) {
+        if (this == NONE) return NONE;
+        return new ResolvedReference(fieldName, fieldType, declarationOffset);
+    }
+
+    public InputField ToInputField(String originalBody, boolean isTwoWay, TextRange selectionRange) {
+        if (this == NONE) return null;
+        //declared inside the fragment, it moves into the new component along with its usages
+        if (declarationOffset >= 0 && selectionRange.contains(declarationOffset)) return null;
+        return new InputField(fieldName, fieldType, originalBody, isTwoWay);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResolvedReference that = (ResolvedReference) o;
+        return declarationOffset == that.declarationOffset &&
+                Objects.equals(fieldName, that.fieldName) &&
+                Objects.equals(fieldType, that.fieldType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fieldName, fieldType, declarationOffset);
+    }
+}
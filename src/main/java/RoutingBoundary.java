@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * What of a fragment can cross a route: a lazily loaded component only gets what fits in its URL,
+ * so its inputs have to be primitives passed as query parameters and nothing can be sent back to the parent.
+ * Its feature module only imports CommonModule, RouterModule and the Angular forms modules the fragment uses, so
+ * any other component, directive or pipe of the parent's module isn't known there either.
+ */
+public class RoutingBoundary {
+    private static final List<String> PRIMITIVE_TYPES = Arrays.asList("string", "number", "boolean");
+    private static final Set<String> BUILT_IN_ELEMENTS = new HashSet<>(Arrays.asList("ng-container", "ng-template", "ng-content", "router-outlet"));
+    //selectors, inputs and outputs of the CommonModule and RouterModule directives
+    private static final Set<String> BUILT_IN_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            "ngIf", "ngIfThen", "ngIfElse", "ngFor", "ngForOf", "ngForTrackBy", "ngForTemplate", "ngSwitch", "ngSwitchCase",
+            "ngSwitchDefault", "ngClass", "ngStyle", "ngTemplateOutlet", "ngTemplateOutletContext", "ngComponentOutlet", "ngPlural",
+            "ngPluralCase", "routerLink", "routerLinkActive", "routerLinkActiveOptions", "queryParams", "queryParamsHandling",
+            "preserveFragment", "skipLocationChange", "replaceUrl"));
+    private static final Set<String> BUILT_IN_PIPES = new HashSet<>(Arrays.asList(
+            "async", "currency", "date", "decimal", "number", "json", "lowercase", "uppercase", "titlecase", "percent", "slice",
+            "keyvalue", "i18nPlural", "i18nSelect"));
+    //DOM properties are camel case like directive inputs, lower case attributes are taken for plain HTML
+    private static final Set<String> DOM_PROPERTIES = new HashSet<>(Arrays.asList(
+            "innerHTML", "outerHTML", "innerText", "textContent", "tabIndex", "readOnly", "colSpan", "rowSpan", "maxLength",
+            "minLength", "className", "htmlFor", "contentEditable", "scrollTop", "scrollLeft", "noValidate", "formNoValidate",
+            "accessKey", "isContentEditable"));
+    private static final Map<String, String> FORMS_MODULES = new HashMap<>();
+
+    static {
+        for (String name : new String[]{"ngModel", "ngModelChange", "ngModelOptions", "ngModelGroup", "ngForm", "ngNoForm", "ngSubmit"}) {
+            FORMS_MODULES.put(name, "FormsModule");
+        }
+        for (String name : new String[]{"formControl", "formControlName", "formGroup", "formGroupName", "formArrayName"}) {
+            FORMS_MODULES.put(name, "ReactiveFormsModule");
+        }
+    }
+
+    public static boolean IsPrimitive(InputField inputField) {
+        return inputField.fieldType != null && PRIMITIVE_TYPES.contains(inputField.fieldType);
+    }
+
+    /**
+     * @param markup the pre-pass over the fragment, for the names of the elements, attributes and pipes it uses
+     * @return why the fragment can't be loaded through a route, empty when it can
+     */
+    public static List<String> Blockers(TemplateAnalysis analysis, FastTemplateAnalysis markup) {
+        List<String> blockers = new ArrayList<>();
+        for (InputField inputField : analysis.inputFields) {
+            if (inputField.isTwoWay) {
+                blockers.add("[(" + inputField.fieldName + ")] can't write back to the parent across a route");
+            } else if (!IsPrimitive(inputField)) {
+                String type = inputField.fieldType == null ? "an unknown type" : inputField.fieldType;
+                blockers.add(inputField.fieldName + " has " + type + ", only string, number and boolean fit in a query parameter");
+            }
+        }
+        for (OutputField outputField : analysis.outputFields) {
+            blockers.add("(" + outputField.eventName + ") can't be emitted to the parent across a route");
+        }
+        for (String elementName : markup.elementNames) {
+            if (elementName.contains("-") && !BUILT_IN_ELEMENTS.contains(elementName)) {
+                blockers.add("<" + elementName + "> isn't known to the feature module, it would need the module declaring it");
+            }
+        }
+        for (String attributeName : markup.attributeNames) {
+            if (!attributeName.equals(attributeName.toLowerCase(Locale.ROOT)) && !BUILT_IN_ATTRIBUTES.contains(attributeName)
+                    && !DOM_PROPERTIES.contains(attributeName) && !FORMS_MODULES.containsKey(attributeName)) {
+                blockers.add(attributeName + " may be a directive the feature module doesn't know, it would need the module declaring it");
+            }
+        }
+        for (String pipeName : markup.pipeNames) {
+            if (!BUILT_IN_PIPES.contains(pipeName)) {
+                blockers.add("the " + pipeName + " pipe isn't known to the feature module, it would need the module declaring it");
+            }
+        }
+        return blockers;
+    }
+
+    /**
+     * @return the Angular forms modules the fragment's directives come from, by class name
+     */
+    public static Set<String> FormsModules(FastTemplateAnalysis markup) {
+        Set<String> modules = new TreeSet<>();
+        for (String attributeName : markup.attributeNames) {
+            String module = FORMS_MODULES.get(attributeName);
+            if (module != null) modules.add(module);
+        }
+        return modules;
+    }
+
+    /**
+     * A readable summary of what is passed as query parameters and what stops the fragment from being routed.
+     */
+    public static String Describe(TemplateAnalysis analysis, List<String> blockers) {
+        StringBuilder description = new StringBuilder();
+        for (InputField inputField : analysis.inputFields) {
+            if (!inputField.isTwoWay && IsPrimitive(inputField)) {
+                description.append("query parameter ").append(inputField.fieldName).append(": ").append(inputField.fieldType).append("\n");
+            }
+        }
+        for (String blocker : blockers) {
+            description.append("not routable: ").append(blocker).append("\n");
+        }
+        return description.toString();
+    }
+}
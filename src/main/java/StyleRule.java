@@ -0,0 +1,33 @@
+import com.intellij.openapi.util.TextRange;
+
+/**
+ * A rule of a stylesheet as plain text and the range it takes up there.
+ */
+public class StyleRule {
+    public final String text;
+    public final String selectorText;
+    /**
+     * The declarations including their braces.
+     */
+    public final String blockText;
+    public final TextRange range;
+    /**
+     * False when one of its selectors couldn't be matched, the rule may apply to more than the matcher can tell.
+     */
+    public final boolean isMovable;
+
+    public StyleRule(String text, String selectorText, String blockText, TextRange range, boolean isMovable) {
+        this.text = text;
+        this.selectorText = selectorText;
+        this.blockText = blockText;
+        this.range = range;
+        this.isMovable = isMovable;
+    }
+
+    /**
+     * The same declarations under other selectors, never moved since the original rule still applies to something else.
+     */
+    public StyleRule WithSelectors(String newSelectorText) {
+        return new StyleRule(newSelectorText + " " + blockText, newSelectorText, blockText, range, false);
+    }
+}
@@ -0,0 +1,130 @@
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.css.StylesheetFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the rules of the parent component's stylesheet that style the selected elements, through {@link StylesheetSelectorIndex}.
+ * The stylesheet is the first plain CSS file of the component's styleUrls, or the .css file named like the template when
+ * the component has none. Sass and Less stylesheets aren't read, they are reported as not migrated, inline styles are left alone.
+ */
+public class StyleRuleMatcher {
+    private static final Pattern STYLE_URLS = Pattern.compile("styleUrls\\s*:\\s*\\[([^\\]]*)]");
+    private static final Pattern QUOTED = Pattern.compile("['\"`]([^'\"`]+)['\"`]");
+
+    /**
+     * @return null when the template has no stylesheet or none of its rules apply to the fragment
+     */
+    public static @Nullable MigratedStyles Find(PsiFile templateFile, PsiElement[] rootElements, TextRange selectionRange) {
+        PsiDirectory directory = templateFile.getContainingDirectory();
+        if (directory == null) return null;
+        List<PsiFile> stylesheetFiles = FindStylesheets(templateFile, directory);
+        if (stylesheetFiles.isEmpty()) return null;
+        List<String> unmigrated = new ArrayList<>();
+        StylesheetFile stylesheetFile = null;
+        for (PsiFile file : stylesheetFiles) {
+            if (stylesheetFile == null && file instanceof StylesheetFile && "css".equals(file.getVirtualFile().getExtension())) {
+                stylesheetFile = (StylesheetFile) file;
+            } else {
+                unmigrated.add(file.getName() + " wasn't searched, only the first plain CSS stylesheet is");
+            }
+        }
+        if (stylesheetFile == null) {
+            return new MigratedStyles(stylesheetFiles.get(0).getVirtualFile(), stylesheetFiles.get(0).getModificationStamp(),
+                    Collections.emptyList(), Collections.emptyList(), unmigrated);
+        }
+        StylesheetSelectorIndex index = StylesheetSelectorIndex.getInstance(stylesheetFile);
+        if (index.rules.isEmpty() && unmigrated.isEmpty()) return null;
+
+        //the new component's styles are encapsulated, so a selector has to match without looking outside the fragment,
+        //one that only matches through an ancestor outside is rewritten with :host-context where it can be
+        Predicate<XmlTag> inSelection = ancestor -> selectionRange.contains(ancestor.getTextRange());
+        Set<Integer> fragmentRules = new TreeSet<>();
+        Map<Integer, Map<String, String>> crossingSelectors = new TreeMap<>();
+        for (PsiElement rootElement : rootElements) {
+            for (XmlTag tag : PsiTreeUtil.findChildrenOfType(rootElement, XmlTag.class)) {
+                CollectFragmentRules(index, tag, inSelection, fragmentRules, crossingSelectors);
+            }
+            if (rootElement instanceof XmlTag) {
+                CollectFragmentRules(index, (XmlTag) rootElement, inSelection, fragmentRules, crossingSelectors);
+            }
+        }
+        if (fragmentRules.isEmpty() && crossingSelectors.isEmpty() && unmigrated.isEmpty()) return null;
+
+        Set<Integer> remainingRules = new HashSet<>();
+        if (!fragmentRules.isEmpty()) {
+            for (XmlTag tag : PsiTreeUtil.findChildrenOfType(templateFile, XmlTag.class)) {
+                if (selectionRange.contains(tag.getTextRange())) continue;
+                ProgressManager.checkCanceled();
+                if (!CssSelectorPattern.IsVirtual(tag)) index.CollectMatchingRules(tag, ancestor -> true, remainingRules);
+            }
+        }
+
+        //in stylesheet order, a rewritten rule keeps its place in the cascade
+        Set<Integer> ruleIndexes = new TreeSet<>(fragmentRules);
+        ruleIndexes.addAll(crossingSelectors.keySet());
+        List<StyleRule> rules = new ArrayList<>();
+        List<StyleRule> movedRules = new ArrayList<>();
+        for (int ruleIndex : ruleIndexes) {
+            StyleRule rule = index.rules.get(ruleIndex);
+            if (fragmentRules.contains(ruleIndex)) {
+                rules.add(rule);
+                if (rule.isMovable && !remainingRules.contains(ruleIndex)) movedRules.add(rule);
+                continue;
+            }
+            List<String> hostContextSelectors = new ArrayList<>();
+            for (Map.Entry<String, String> selector : crossingSelectors.get(ruleIndex).entrySet()) {
+                if (selector.getValue() != null) {
+                    hostContextSelectors.add(selector.getValue());
+                } else {
+                    unmigrated.add(selector.getKey() + " matches through markup outside the selection");
+                }
+            }
+            if (!hostContextSelectors.isEmpty()) rules.add(rule.WithSelectors(String.join(", ", hostContextSelectors)));
+        }
+        return new MigratedStyles(stylesheetFile.getVirtualFile(), stylesheetFile.getModificationStamp(), rules, movedRules, unmigrated);
+    }
+
+    private static void CollectFragmentRules(StylesheetSelectorIndex index, XmlTag tag, Predicate<XmlTag> inSelection,
+                                             Set<Integer> fragmentRules, Map<Integer, Map<String, String>> crossingSelectors) {
+        ProgressManager.checkCanceled();
+        if (CssSelectorPattern.IsVirtual(tag)) return;
+        index.CollectMatchingRules(tag, inSelection, fragmentRules);
+        index.CollectCrossingSelectors(tag, inSelection, crossingSelectors);
+    }
+
+    /**
+     * The component's styleUrls relative to the template's directory, the component is found like
+     * {@link NgModuleRegistrar} finds it, next to the template under the same name.
+     */
+    private static List<PsiFile> FindStylesheets(PsiFile templateFile, PsiDirectory directory) {
+        String baseName = StringUtil.trimEnd(templateFile.getName(), ".html");
+        PsiFile componentFile = directory.findFile(baseName + ".ts");
+        Matcher styleUrls = componentFile == null ? null : STYLE_URLS.matcher(componentFile.getText());
+        if (styleUrls == null || !styleUrls.find()) {
+            PsiFile stylesheetFile = directory.findFile(baseName + ".css");
+            return stylesheetFile == null ? Collections.emptyList() : Collections.singletonList(stylesheetFile);
+        }
+        List<PsiFile> stylesheetFiles = new ArrayList<>();
+        Matcher styleUrl = QUOTED.matcher(styleUrls.group(1));
+        while (styleUrl.find()) {
+            VirtualFile stylesheet = directory.getVirtualFile().findFileByRelativePath(styleUrl.group(1));
+            PsiFile stylesheetFile = stylesheet == null ? null : PsiManager.getInstance(templateFile.getProject()).findFile(stylesheet);
+            if (stylesheetFile != null) stylesheetFiles.add(stylesheetFile);
+        }
+        return stylesheetFiles;
+    }
+}
@@ -0,0 +1,93 @@
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.css.CssBlock;
+import com.intellij.psi.css.CssRuleset;
+import com.intellij.psi.css.CssSelector;
+import com.intellij.psi.css.CssStylesheet;
+import com.intellij.psi.css.StylesheetFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.xml.XmlTag;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Selectors of one stylesheet, bucketed by the id, class or tag of their rightmost compound the way browsers do it,
+ * so a tag is only checked against the few selectors that share one of its keys.
+ * Built once per version of the stylesheet and kept on the file.
+ */
+public class StylesheetSelectorIndex {
+    private static final Key<CachedValue<StylesheetSelectorIndex>> INDEX_KEY = Key.create("AngularExtractComponent.SelectorIndex");
+
+    public final List<StyleRule> rules = new ArrayList<>();
+    private final Map<String, List<IndexedSelector>> selectorsByKey = new HashMap<>();
+
+    private StylesheetSelectorIndex(StylesheetFile stylesheetFile) {
+        CssStylesheet stylesheet = stylesheetFile.getStylesheet();
+        if (stylesheet == null) return;
+        for (CssRuleset ruleset : stylesheet.getRulesets()) {
+            ProgressManager.checkCanceled();
+            //rules inside @media and other at-rules would need their wrapper in the new file, they stay where they are
+            if (ruleset.getParent() == null || ruleset.getParent().getParent() != stylesheet) continue;
+            int ruleIndex = rules.size();
+            boolean isMovable = true;
+            for (CssSelector selector : ruleset.getSelectors()) {
+                CssSelectorPattern pattern = CssSelectorPattern.Parse(selector);
+                if (pattern == null) {
+                    isMovable = false;
+                    continue;
+                }
+                selectorsByKey.computeIfAbsent(pattern.Key(), key -> new ArrayList<>()).add(new IndexedSelector(ruleIndex, pattern));
+            }
+            CssBlock block = ruleset.getBlock();
+            rules.add(new StyleRule(ruleset.getText(), ruleset.getSelectorList().getText().trim(), block == null ? "{}" : block.getText(),
+                    ruleset.getTextRange(), isMovable));
+        }
+    }
+
+    public static StylesheetSelectorIndex getInstance(StylesheetFile stylesheetFile) {
+        return CachedValuesManager.getCachedValue(stylesheetFile, INDEX_KEY,
+                () -> CachedValueProvider.Result.create(new StylesheetSelectorIndex(stylesheetFile), stylesheetFile));
+    }
+
+    /**
+     * Adds the index of every rule with a selector matching the tag.
+     */
+    public void CollectMatchingRules(XmlTag tag, Predicate<XmlTag> inScope, Set<Integer> ruleIndexes) {
+        for (String key : CssSelectorPattern.Keys(tag)) {
+            for (IndexedSelector selector : selectorsByKey.getOrDefault(key, Collections.emptyList())) {
+                if (!ruleIndexes.contains(selector.ruleIndex) && selector.pattern.Matches(tag, inScope)) {
+                    ruleIndexes.add(selector.ruleIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the selectors that only match the tag through an ancestor outside the scope, by the index of their rule,
+     * rewritten with :host-context or null where they can't be.
+     */
+    public void CollectCrossingSelectors(XmlTag tag, Predicate<XmlTag> inScope, Map<Integer, Map<String, String>> crossingSelectors) {
+        for (String key : CssSelectorPattern.Keys(tag)) {
+            for (IndexedSelector selector : selectorsByKey.getOrDefault(key, Collections.emptyList())) {
+                if (!selector.pattern.Matches(tag, ancestor -> true) || selector.pattern.Matches(tag, inScope)) continue;
+                Map<String, String> rewritten = crossingSelectors.computeIfAbsent(selector.ruleIndex, ruleIndex -> new LinkedHashMap<>());
+                //one tag it can't be rewritten for is enough to lose the selector
+                String previous = rewritten.getOrDefault(selector.pattern.text, "");
+                rewritten.put(selector.pattern.text, previous == null ? null : selector.pattern.HostContextSelector(tag, inScope));
+            }
+        }
+    }
+
+    private static class IndexedSelector {
+        final int ruleIndex;
+        final CssSelectorPattern pattern;
+
+        IndexedSelector(int ruleIndex, CssSelectorPattern pattern) {
+            this.ruleIndex = ruleIndex;
+            this.pattern = pattern;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything found in a selected template fragment, as plain values so no PSI is kept alive after the read action.
+ */
+public class TemplateAnalysis {
+    public final VirtualFile templateFile;
+    public final TextRange selectionRange;
+    public final long modificationStamp;
+    public final String fragmentText;
+    /**
+     * Leading whitespace of the line the fragment starts on.
+     */
+    public final String fragmentIndent;
+    public final List<InputField> inputFields;
+    public final List<OutputField> outputFields;
+    /**
+     * Edits turning the fragment into the new component's template, offsets are relative to the fragment.
+     */
+    public final List<TextEdit> htmlEdits;
+    /**
+     * Writes to bound values that a component with OnPush change detection would hide from its parent.
+     */
+    public final List<InputMutation> inputMutations;
+    /**
+     * Component methods the new template calls through a generated pipe instead of an input.
+     */
+    public final List<PipeDefinition> pipes;
+    public final List<TrackByFunction> trackByFunctions;
+    /**
+     * Rules of the parent's stylesheet that apply to the fragment, null when there are none.
+     */
+    public final @Nullable MigratedStyles styles;
+
+    public TemplateAnalysis(VirtualFile templateFile,
+                            TextRange selectionRange,
+                            long modificationStamp,
+                            String fragmentText,
+                            String fragmentIndent,
+                            List<InputField> inputFields,
+                            List<OutputField> outputFields,
+                            List<TextEdit> htmlEdits,
+                            List<InputMutation> inputMutations,
+                            List<PipeDefinition> pipes,
+                            List<TrackByFunction> trackByFunctions,
+                            @Nullable MigratedStyles styles) {
+        this.templateFile = templateFile;
+        this.selectionRange = selectionRange;
+        this.modificationStamp = modificationStamp;
+        this.fragmentText = fragmentText;
+        this.fragmentIndent = fragmentIndent;
+        this.inputFields = Collections.unmodifiableList(inputFields);
+        this.outputFields = Collections.unmodifiableList(outputFields);
+        this.htmlEdits = Collections.unmodifiableList(htmlEdits);
+        this.inputMutations = Collections.unmodifiableList(inputMutations);
+        this.pipes = Collections.unmodifiableList(pipes);
+        this.trackByFunctions = Collections.unmodifiableList(trackByFunctions);
+        this.styles = styles;
+    }
+
+    public boolean IsOnPushSafe() {
+        return inputMutations.isEmpty();
+    }
+
+    public boolean HasTwoWayBindings() {
+        return inputFields.stream().anyMatch(inputField -> inputField.isTwoWay);
+    }
+}
@@ -0,0 +1,303 @@
+import com.intellij.lang.javascript.JSTokenTypes;
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttributeValue;
+import com.intellij.psi.xml.XmlTag;
+import org.angular2.lang.expr.psi.Angular2Binding;
+import org.angular2.lang.expr.psi.Angular2Interpolation;
+import org.angular2.lang.expr.psi.Angular2TemplateBinding;
+import org.angular2.lang.html.psi.Angular2HtmlBananaBoxBinding;
+import org.angular2.lang.html.psi.Angular2HtmlEvent;
+import org.angular2.lang.html.psi.Angular2HtmlPropertyBinding;
+import org.angular2.lang.html.psi.Angular2HtmlTemplateBindings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Collects bindings, events and their top level references and calls in a single walk over the selected elements.
+ */
+public class TemplateAnalyzer extends PsiRecursiveElementWalkingVisitor {
+    public final List<AngularBinding> bindings = new ArrayList<>();
+    public final List<AngularEvent> events = new ArrayList<>();
+    /**
+     * Writes found in events and two way bindings, keyed by the name they start from, which may or may not become an input.
+     */
+    private final List<InputMutation> writes = new ArrayList<>();
+    private final List<TrackByFunction> trackByFunctions = new ArrayList<>();
+    /**
+     * Where each *ngFor without a trackBy gets one, at the end of its expression in template offsets.
+     */
+    private final List<TextEdit> trackByEdits = new ArrayList<>();
+
+    private final ResolutionCache resolutionCache;
+    private final ExtractionMetrics metrics;
+    private final TemplateSymbolTable templateSymbols;
+    private PsiElement contextOwner;
+    private AngularBinding currentBinding;
+    private AngularEvent currentEvent;
+
+    public TemplateAnalyzer(ResolutionCache resolutionCache, ExtractionMetrics metrics) {
+        this.resolutionCache = resolutionCache;
+        this.metrics = metrics;
+        this.templateSymbols = new TemplateSymbolTable(metrics);
+    }
+
+    public TemplateAnalysis Analyze(PsiElement[] rootElements) {
+        PsiFile templateFile = rootElements[0].getContainingFile();
+        TextRange selectionRange = new TextRange(rootElements[0].getTextRange().getStartOffset(),
+                rootElements[rootElements.length - 1].getTextRange().getEndOffset());
+
+        CharSequence templateText = templateFile.getViewProvider().getContents();
+        String fragmentText = selectionRange.subSequence(templateText).toString();
+
+        //plain markup has nothing to bind, the text pre-pass is enough to tell and saves the PSI walk
+        boolean isStatic = metrics.Time(ExtractionMetrics.PRE_PASS, () -> FastTemplateAnalyzer.Analyze(fragmentText).IsStatic());
+        if (!isStatic) {
+            metrics.Time(ExtractionMetrics.TEMPLATE_WALK, () -> {
+                templateSymbols.Clear();
+                AddEnclosingTemplateScopes(rootElements[0]);
+                for (PsiElement rootElement : rootElements) {
+                    rootElement.accept(this);
+                }
+            });
+            metrics.Time(ExtractionMetrics.RESOLUTION, () -> ResolveInputFields(selectionRange));
+        }
+
+        List<TextEdit> htmlEdits = new ArrayList<>();
+        ComponentEmitter emitter = bindings.isEmpty() ? null : new ComponentEmitter(templateFile);
+        for (AngularBinding binding : bindings) {
+            ProgressManager.checkCanceled();
+            binding.CollectHtmlEdits(htmlEdits, selectionRange.getStartOffset(), emitter);
+        }
+        for (TextEdit trackByEdit : trackByEdits) {
+            htmlEdits.add(TextEdit.Insert(trackByEdit.startOffset - selectionRange.getStartOffset(), trackByEdit.replacement));
+        }
+        List<OutputField> outputFields = events.stream().map(AngularEvent::ToOutputField).collect(Collectors.toList());
+        List<InputField> inputFields = TransformForRendering(bindings);
+        //matching walks the whole template, it's only worth it when the rules are migrated
+        MigratedStyles styles = !ExtractComponentSettings.getInstance().migrateStyles ? null
+                : metrics.Time(ExtractionMetrics.STYLE_MATCHING, () -> StyleRuleMatcher.Find(templateFile, rootElements, selectionRange));
+        List<PipeDefinition> pipes = bindings.stream().flatMap(binding -> binding.pipes.values().stream()).distinct().collect(Collectors.toList());
+        return new TemplateAnalysis(templateFile.getVirtualFile(), selectionRange, templateFile.getModificationStamp(),
+                fragmentText, LineIndent(templateText, selectionRange.getStartOffset()),
+                inputFields, outputFields, htmlEdits, InputMutations(inputFields), pipes,
+                trackByFunctions.stream().distinct().collect(Collectors.toList()), styles);
+    }
+
+    private static String LineIndent(CharSequence text, int offset) {
+        int lineStart = offset;
+        while (lineStart > 0 && text.charAt(lineStart - 1) != '\n') lineStart--;
+        int indentEnd = lineStart;
+        while (indentEnd < offset && (text.charAt(indentEnd) == ' ' || text.charAt(indentEnd) == '\t')) indentEnd++;
+        return text.subSequence(lineStart, indentEnd).toString();
+    }
+
+    /**
+     * Each binding only fills its own input fields, so they can be resolved concurrently
+     * and still be rendered in template order afterwards.
+     */
+    private void ResolveInputFields(TextRange selectionRange) {
+        if (bindings.size() < ExtractComponentSettings.getInstance().parallelResolveThreshold) {
+            for (AngularBinding binding : bindings) {
+                ProgressManager.checkCanceled();
+                binding.ResolveInputFields(resolutionCache, selectionRange, metrics);
+            }
+            return;
+        }
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        boolean completed = JobLauncher.getJobLauncher().invokeConcurrentlyUnderProgress(bindings, indicator, binding -> {
+            binding.ResolveInputFields(resolutionCache, selectionRange, metrics);
+            return true;
+        });
+        if (!completed) throw new ProcessCanceledException();
+    }
+
+    private List<InputMutation> InputMutations(List<InputField> inputFields) {
+        List<InputMutation> inputMutations = new ArrayList<>();
+        for (InputMutation write : writes) {
+            if (inputFields.stream().anyMatch(inputField -> inputField.fieldName.equals(write.inputName))) inputMutations.add(write);
+        }
+        return inputMutations;
+    }
+
+    /**
+     * Declarations of the enclosing tags are visible in the whole selection, they are entered outermost first.
+     */
+    private void AddEnclosingTemplateScopes(PsiElement rootElement) {
+        List<XmlTag> enclosingTags = new ArrayList<>();
+        XmlTag tag = PsiTreeUtil.getParentOfType(rootElement, XmlTag.class);
+        while (tag != null) {
+            enclosingTags.add(0, tag);
+            tag = PsiTreeUtil.getParentOfType(tag, XmlTag.class);
+        }
+        for (XmlTag enclosingTag : enclosingTags) {
+            templateSymbols.EnterScope(enclosingTag);
+        }
+    }
+
+    static List<InputField> TransformForRendering(List<AngularBinding> bindings) {
+        //sorted so 2 way bindings come first
+        return bindings.stream().sorted((o1, o2) -> Boolean.compare(o2.isTwoWayBinding, o1.isTwoWayBinding))
+                .flatMap(angularBinding -> angularBinding.inputFields.stream())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void visitElement(PsiElement element) {
+        ProgressManager.checkCanceled();
+        if (contextOwner == null) {
+            StartContext(element);
+        } else if (currentBinding != null) {
+            if (element instanceof JSCallExpression) {
+                currentBinding.AddCallExpression((JSCallExpression) element);
+            } else if (element instanceof JSReferenceExpression) {
+                currentBinding.AddReferenceExpression((JSReferenceExpression) element, templateSymbols);
+            }
+        } else if (currentEvent != null) {
+            if (element instanceof JSCallExpression) {
+                currentEvent.SetFirstCallExpression((JSCallExpression) element);
+                //only the first call of an event is used, nothing below it matters
+                return;
+            }
+            AddWrite(element);
+        }
+        super.visitElement(element);
+    }
+
+    private void StartContext(PsiElement element) {
+        if (element instanceof XmlTag) {
+            templateSymbols.EnterScope((XmlTag) element);
+        } else if (element instanceof Angular2HtmlTemplateBindings) {
+            //the bindings inside still start their own contexts
+            AddTrackBy((Angular2HtmlTemplateBindings) element);
+        } else if (element instanceof Angular2HtmlBananaBoxBinding) {
+            Angular2HtmlBananaBoxBinding bananaBoxBinding = (Angular2HtmlBananaBoxBinding) element;
+            StartBinding(element, new Angular2WayBinding(bananaBoxBinding));
+            AddTwoWayWrite(bananaBoxBinding.getBinding());
+        } else if (element instanceof Angular2HtmlPropertyBinding) {
+            StartBinding(element, new AngularBinding(((Angular2HtmlPropertyBinding) element).getBinding(), false));
+        } else if (element instanceof Angular2Interpolation) {
+            StartBinding(element, new AngularBinding((Angular2Interpolation) element, false));
+        } else if (element instanceof Angular2TemplateBinding) {
+            StartBinding(element, new AngularBinding((Angular2TemplateBinding) element, false));
+        } else if (element instanceof Angular2HtmlEvent) {
+            contextOwner = element;
+            currentEvent = new AngularEvent(((Angular2HtmlEvent) element).getAction());
+            events.add(currentEvent);
+        }
+    }
+
+    private void StartBinding(PsiElement owner, AngularBinding binding) {
+        if (binding.element == null) return;
+        contextOwner = owner;
+        currentBinding = binding;
+        bindings.add(binding);
+    }
+
+    private void AddTrackBy(Angular2HtmlTemplateBindings attribute) {
+        XmlAttributeValue value = attribute.getValueElement();
+        TrackByFunction trackBy = NgForTrackBy.Infer(attribute.getBindings(), metrics);
+        if (value == null || trackBy == null) return;
+        trackBy = UniqueTrackByName(trackBy);
+        trackByEdits.add(TextEdit.Insert(value.getValueTextRange().getEndOffset(), "; trackBy: " + trackBy.name));
+        trackByFunctions.add(trackBy);
+    }
+
+    /**
+     * Lists whose items differ but map to the same name, like two `trackById` for types that aren't named, get a number each.
+     */
+    private TrackByFunction UniqueTrackByName(TrackByFunction trackBy) {
+        TrackByFunction named = trackBy;
+        for (int suffix = 2; IsTrackByNameTaken(named); suffix++) {
+            named = trackBy.WithName(trackBy.name + suffix);
+        }
+        return named;
+    }
+
+    private boolean IsTrackByNameTaken(TrackByFunction trackBy) {
+        for (TrackByFunction other : trackByFunctions) {
+            if (other.name.equals(trackBy.name) && !other.equals(trackBy)) return true;
+        }
+        return false;
+    }
+
+    private void AddWrite(PsiElement element) {
+        JSExpression target = null;
+        if (element instanceof JSAssignmentExpression) {
+            target = ((JSAssignmentExpression) element).getLOperand();
+        } else if (element instanceof JSPrefixExpression && IsIncrement(((JSPrefixExpression) element).getOperationSign())) {
+            target = ((JSPrefixExpression) element).getExpression();
+        } else if (element instanceof JSPostfixExpression && IsIncrement(((JSPostfixExpression) element).getOperationSign())) {
+            target = ((JSPostfixExpression) element).getExpression();
+        }
+        String rootName = RootReferenceName(target);
+        if (rootName != null) writes.add(new InputMutation(rootName, element.getText()));
+    }
+
+    private static boolean IsIncrement(IElementType operationSign) {
+        return operationSign == JSTokenTypes.PLUSPLUS || operationSign == JSTokenTypes.MINUSMINUS;
+    }
+
+    /**
+     * A two way binding to a plain name is written back through the generated EventEmitter,
+     * one to a property path writes into the object the parent passed in.
+     */
+    private void AddTwoWayWrite(@Nullable Angular2Binding binding) {
+        if (binding == null) return;
+        JSExpression expression = binding.getExpression();
+        if (expression == null || IsPlainReference(expression)) return;
+        String rootName = RootReferenceName(expression);
+        if (rootName != null) writes.add(new InputMutation(rootName, expression.getText()));
+    }
+
+    private static boolean IsPlainReference(JSExpression expression) {
+        if (!(expression instanceof JSReferenceExpression)) return false;
+        JSExpression qualifier = ((JSReferenceExpression) expression).getQualifier();
+        return qualifier == null || qualifier instanceof JSThisExpression;
+    }
+
+    /**
+     * @return the name a written expression starts from, `item` for `item.tags[0].name`
+     */
+    private static @Nullable String RootReferenceName(@Nullable JSExpression expression) {
+        if (expression instanceof JSDefinitionExpression) expression = ((JSDefinitionExpression) expression).getExpression();
+        while (expression != null && !IsPlainReference(expression)) {
+            if (expression instanceof JSIndexedPropertyAccessExpression) {
+                expression = ((JSIndexedPropertyAccessExpression) expression).getQualifier();
+            } else if (expression instanceof JSReferenceExpression) {
+                expression = ((JSReferenceExpression) expression).getQualifier();
+            } else if (expression instanceof JSParenthesizedExpression) {
+                expression = ((JSParenthesizedExpression) expression).getInnerExpression();
+            } else {
+                return null;
+            }
+        }
+        return expression == null ? null : ((JSReferenceExpression) expression).getReferenceName();
+    }
+
+    @Override
+    protected void elementFinished(@NotNull PsiElement element) {
+        if (element == templateSymbols.CurrentScope()) {
+            templateSymbols.ExitScope();
+            return;
+        }
+        if (element != contextOwner) return;
+        contextOwner = null;
+        currentBinding = null;
+        currentEvent = null;
+    }
+}
@@ -0,0 +1,22 @@
+import com.intellij.openapi.util.TextRange;
+
+/**
+ * A name declared by the template itself: a *ngFor or other structural directive variable, a let- or a #reference.
+ */
+public class TemplateSymbol {
+    public final String name;
+    public final String type;
+    public final int declarationOffset;
+
+    public TemplateSymbol(String name, String type, int declarationOffset) {
+        this.name = name;
+        this.type = type;
+        this.declarationOffset = declarationOffset;
+    }
+
+    public InputField ToInputField(boolean isTwoWay, TextRange selectionRange) {
+        //declared inside the fragment, it moves into the new component along with its usages
+        if (selectionRange.contains(declarationOffset)) return null;
+        return new InputField(name, type, name, isTwoWay);
+    }
+}
@@ -0,0 +1,182 @@
+import com.intellij.lang.javascript.psi.*;
+import com.intellij.lang.javascript.psi.resolve.JSTypeEvaluator;
+import com.intellij.lang.javascript.psi.types.JSGenericTypeImpl;
+import com.intellij.openapi.util.Pair;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlTag;
+import org.angular2.lang.expr.psi.Angular2TemplateBinding;
+import org.angular2.lang.expr.psi.Angular2TemplateBindings;
+import org.angular2.lang.html.psi.Angular2HtmlTemplateBindings;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names declared by the template, kept as a single map of what is visible at the current point of the walk.
+ * Entering a tag that declares names shadows the outer ones until the tag is left again.
+ */
+public class TemplateSymbolTable {
+    private final ExtractionMetrics metrics;
+    private final Map<String, TemplateSymbol> visibleSymbols = new HashMap<>();
+    private final List<XmlTag> scopes = new ArrayList<>();
+    private final List<List<Pair<String, TemplateSymbol>>> shadowedSymbols = new ArrayList<>();
+
+    public TemplateSymbolTable(ExtractionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public @Nullable TemplateSymbol Find(String name) {
+        return visibleSymbols.get(name);
+    }
+
+    public @Nullable PsiElement CurrentScope() {
+        return scopes.isEmpty() ? null : scopes.get(scopes.size() - 1);
+    }
+
+    public boolean EnterScope(XmlTag tag) {
+        if (!DeclaresTemplateScope(tag)) return false;
+        scopes.add(tag);
+        shadowedSymbols.add(new ArrayList<>());
+        for (XmlAttribute attribute : tag.getAttributes()) {
+            DeclareSymbols(tag, attribute);
+        }
+        return true;
+    }
+
+    public void ExitScope() {
+        scopes.remove(scopes.size() - 1);
+        List<Pair<String, TemplateSymbol>> shadowed = shadowedSymbols.remove(shadowedSymbols.size() - 1);
+        for (int i = shadowed.size() - 1; i >= 0; i--) {
+            Pair<String, TemplateSymbol> symbol = shadowed.get(i);
+            if (symbol.second == null) {
+                visibleSymbols.remove(symbol.first);
+            } else {
+                visibleSymbols.put(symbol.first, symbol.second);
+            }
+        }
+    }
+
+    public void Clear() {
+        visibleSymbols.clear();
+        scopes.clear();
+        shadowedSymbols.clear();
+    }
+
+    private static boolean DeclaresTemplateScope(XmlTag tag) {
+        if ("ng-template".equals(tag.getName())) return true;
+        for (XmlAttribute attribute : tag.getAttributes()) {
+            String name = attribute.getName();
+            if (name.startsWith("*") || name.startsWith("#") || name.startsWith("let-") || name.startsWith("ref-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void DeclareSymbols(XmlTag tag, XmlAttribute attribute) {
+        String attributeName = attribute.getName();
+        int offset = attribute.getTextRange().getStartOffset();
+        if (attribute instanceof Angular2HtmlTemplateBindings) {
+            DeclareTemplateBindings(((Angular2HtmlTemplateBindings) attribute).getBindings(), offset);
+        } else if (attributeName.startsWith("#")) {
+            Declare(new TemplateSymbol(attributeName.substring(1), ReferenceType(tag, attribute), offset));
+        } else if (attributeName.startsWith("ref-")) {
+            Declare(new TemplateSymbol(attributeName.substring(4), ReferenceType(tag, attribute), offset));
+        } else if (attributeName.startsWith("let-")) {
+            //the context of a plain ng-template isn't known here
+            Declare(new TemplateSymbol(attributeName.substring(4), "any", offset));
+        }
+    }
+
+    private void DeclareTemplateBindings(Angular2TemplateBindings templateBindings, int offset) {
+        Angular2TemplateBinding[] bindings = templateBindings.getBindings();
+        boolean isNgFor = "ngFor".equals(templateBindings.getTemplateName());
+        for (Angular2TemplateBinding binding : bindings) {
+            if (!binding.keyIsVar()) continue;
+            String contextName = binding.getName() == null ? "$implicit" : binding.getName();
+            String type = isNgFor ? NgForContextType(bindings, contextName) : BoundValueType(bindings, contextName);
+            Declare(new TemplateSymbol(binding.getKey(), type == null ? "any" : type, offset));
+        }
+    }
+
+    private @Nullable String NgForContextType(Angular2TemplateBinding[] bindings, String contextName) {
+        switch (contextName) {
+            case "index":
+            case "count":
+                return "number";
+            case "first":
+            case "last":
+            case "even":
+            case "odd":
+                return "boolean";
+            case "$implicit":
+            case "ngForOf":
+                JSType iterableType = BoundJSType(bindings, "ngForOf", metrics);
+                return iterableType == null ? null : TypeScriptTypes.ToTypeText(ElementType(iterableType));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * `*ngIf="user$ | async as user"` declares user with the value bound to ngIf.
+     */
+    private @Nullable String BoundValueType(Angular2TemplateBinding[] bindings, String contextName) {
+        return TypeScriptTypes.ToTypeText(BoundJSType(bindings, contextName, metrics));
+    }
+
+    static @Nullable JSType BoundJSType(Angular2TemplateBinding[] bindings, String key, ExtractionMetrics metrics) {
+        for (Angular2TemplateBinding binding : bindings) {
+            if (binding.keyIsVar() || !key.equals(binding.getKey()) || binding.getExpression() == null) continue;
+            metrics.Count(ExtractionMetrics.TYPE_EVALUATIONS);
+            JSTypeEvaluationResult result = JSTypeEvaluator.getElementType(binding.getExpression());
+            return result == null ? null : result.getType();
+        }
+        return null;
+    }
+
+    static @Nullable JSType ElementType(JSType iterableType) {
+        if (iterableType instanceof JSArrayType) return ((JSArrayType) iterableType).getType();
+        if (iterableType instanceof JSGenericTypeImpl) {
+            List<JSType> arguments = ((JSGenericTypeImpl) iterableType).getArguments();
+            if (arguments.size() == 1) return arguments.get(0);
+        }
+        return null;
+    }
+
+    private static String ReferenceType(XmlTag tag, XmlAttribute attribute) {
+        //#form="ngForm" refers to a directive instance
+        if (attribute.getValue() != null && !attribute.getValue().isEmpty()) return "any";
+        String tagName = tag.getName();
+        if ("ng-template".equals(tagName)) return "TemplateRef<any>";
+        //a component, its class isn't looked up here
+        if (tagName.contains("-")) return "any";
+        switch (tagName) {
+            case "input":
+                return "HTMLInputElement";
+            case "select":
+                return "HTMLSelectElement";
+            case "textarea":
+                return "HTMLTextAreaElement";
+            case "button":
+                return "HTMLButtonElement";
+            case "form":
+                return "HTMLFormElement";
+            case "a":
+                return "HTMLAnchorElement";
+            case "img":
+                return "HTMLImageElement";
+            default:
+                return "HTMLElement";
+        }
+    }
+
+    private void Declare(TemplateSymbol symbol) {
+        shadowedSymbols.get(shadowedSymbols.size() - 1).add(Pair.create(symbol.name, visibleSymbols.get(symbol.name)));
+        visibleSymbols.put(symbol.name, symbol);
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Replaces a range of template text, an insertion when the range is empty.
+ */
+public class TextEdit {
+    public final int startOffset;
+    public final int endOffset;
+    public final String replacement;
+
+    public TextEdit(int startOffset, int endOffset, String replacement) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.replacement = replacement;
+    }
+
+    public static TextEdit Insert(int offset, String text) {
+        return new TextEdit(offset, offset, text);
+    }
+}
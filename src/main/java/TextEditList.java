@@ -0,0 +1,41 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies offset ranged edits of a text in a single pass.
+ */
+public class TextEditList {
+    //insertions go in front of a replacement starting at the same offset, wider replacements before the ones nested in them
+    private static final Comparator<TextEdit> APPLY_ORDER = Comparator.comparingInt((TextEdit edit) -> edit.startOffset)
+            .thenComparing(edit -> edit.endOffset != edit.startOffset)
+            .thenComparing(Comparator.comparingInt((TextEdit edit) -> edit.endOffset).reversed());
+
+    private final List<TextEdit> edits = new ArrayList<>();
+
+    public TextEditList(Collection<TextEdit> edits) {
+        this.edits.addAll(edits);
+    }
+
+    /**
+     * Edits inside a range that is replaced by another edit are dropped, the wider replacement already covers them.
+     */
+    public String Apply(CharSequence text) {
+        if (edits.isEmpty()) return text.toString();
+        edits.sort(APPLY_ORDER);
+        int replacementLength = 0;
+        for (TextEdit edit : edits) {
+            replacementLength += edit.replacement.length();
+        }
+        StringBuilder builder = new StringBuilder(text.length() + replacementLength);
+        int copiedUpTo = 0;
+        for (TextEdit edit : edits) {
+            if (edit.startOffset < copiedUpTo) continue;
+            builder.append(text, copiedUpTo, edit.startOffset).append(edit.replacement);
+            copiedUpTo = edit.endOffset;
+        }
+        builder.append(text, copiedUpTo, text.length());
+        return builder.toString();
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A trackBy function for an *ngFor of the fragment, returning the identity key of each item.
+ */
+public class TrackByFunction {
+    public final String name;
+    public final String itemType;
+    public final String keyName;
+    public final String keyType;
+    /**
+     * What the generated component imports for the item type, like a pipe imports what its transform uses.
+     */
+    public final List<PipeDefinition.PipeImport> itemImports;
+
+    public TrackByFunction(String name, String itemType, String keyName, String keyType, List<PipeDefinition.PipeImport> itemImports) {
+        this.name = name;
+        this.itemType = itemType;
+        this.keyName = keyName;
+        this.keyType = keyType;
+        this.itemImports = Collections.unmodifiableList(itemImports);
+    }
+
+    public TrackByFunction WithName(String name) {
+        return new TrackByFunction(name, itemType, keyName, keyType, itemImports);
+    }
+
+    /**
+     * Lists of the same item type share a function, lists of different ones don't even when their names match.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TrackByFunction that = (TrackByFunction) o;
+        return Objects.equals(name, that.name) && Objects.equals(itemType, that.itemType) && Objects.equals(keyName, that.keyName)
+                && Objects.equals(keyType, that.keyType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, itemType, keyName, keyType);
+    }
+}
@@ -0,0 +1,14 @@
+import com.intellij.lang.javascript.psi.JSType;
+import org.jetbrains.annotations.Nullable;
+
+public class TypeScriptTypes {
+    /**
+     * @return the type as it's written in TypeScript code, any when the type couldn't be determined
+     */
+    public static @Nullable String ToTypeText(@Nullable JSType type) {
+        if (type == null) return null;
+        String typeText = type.getTypeText(JSType.TypeTextFormat.CODE);
+        if ("*".equals(typeText)) return "any";
+        return typeText;
+    }
+}
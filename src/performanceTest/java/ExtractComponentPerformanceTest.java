@@ -0,0 +1,177 @@
+import com.google.common.base.CaseFormat;
+import com.intellij.openapi.actionSystem.impl.SimpleDataContext;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.TestInputDialog;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs ExtractComponentHandler end to end on a generated project with thousands of components and fails when the run
+ * or one of its phases goes over its budget. The phases are read from the metrics the handler records, a phase passes
+ * when its best attempt is within budget, like {@link PlatformTestUtil#startPerformanceTest} judges the whole run.
+ * Every attempt extracts from a different component so no attempt reuses the previous one's caches.
+ */
+public class ExtractComponentPerformanceTest extends LightPlatformCodeInsightFixtureTestCase {
+    private static final int COMPONENT_COUNT = 2000;
+    private static final int TEMPLATE_DEPTH = 12;
+    private static final int ATTEMPTS = 10;
+
+    private static final int END_TO_END_BUDGET_MS = 1500;
+    private static final int SELECTION_BUDGET_MS = 50;
+    private static final int ANALYSIS_BUDGET_MS = 500;
+    private static final int WRITE_BUDGET_MS = 300;
+    private static final int REFORMAT_BUDGET_MS = 500;
+    private static final int VFS_UPDATE_BUDGET_MS = 300;
+    /**
+     * Scales every budget, `gradle check` runs with generous budgets so only a large regression fails the build.
+     */
+    private static final double BUDGET_FACTOR = Double.parseDouble(System.getProperty("extractComponent.budgetFactor", "1"));
+
+    private static File generatedApp;
+
+    private final List<ExtractionMetrics> attemptMetrics = new ArrayList<>();
+    private int nextComponent;
+    private String componentName;
+    private boolean reformatGeneratedFiles;
+    private TestInputDialog previousInputDialog;
+
+    @Override
+    protected String getTestDataPath() {
+        return GeneratedApp().getPath();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        reformatGeneratedFiles = settings.reformatGeneratedFiles;
+        settings.reformatGeneratedFiles = true;
+        previousInputDialog = Messages.setTestInputDialog(message -> componentName);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            ExtractComponentSettings.getInstance().reformatGeneratedFiles = reformatGeneratedFiles;
+            Messages.setTestInputDialog(previousInputDialog);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    private static synchronized File GeneratedApp() {
+        if (generatedApp == null) {
+            try {
+                generatedApp = FileUtil.createTempDirectory("synthetic-client-app", null);
+                SyntheticClientApp.Generate(generatedApp.toPath(), COMPONENT_COUNT, TEMPLATE_DEPTH);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return generatedApp;
+    }
+
+    /**
+     * One test method, the light project's files are cleaned after every test and copying the generated app is
+     * by far the slowest part of the suite.
+     */
+    public void testExtractComponent() {
+        myFixture.copyDirectoryToProject("", "");
+
+        PlatformTestUtil.startPerformanceTest("Extract component: end to end", Budget(END_TO_END_BUDGET_MS), this::InvokeHandler)
+                .setup(this::SelectNextFragment)
+                .attempts(ATTEMPTS)
+                .assertTiming();
+        //the end to end run stops at its first passing attempt, the phases get all of theirs
+        while (attemptMetrics.size() < ATTEMPTS) {
+            SelectNextFragment();
+            InvokeHandler();
+        }
+        AssertPhase("selection resolution", Budget(SELECTION_BUDGET_MS), ExtractionMetrics.SELECTION);
+        AssertPhase("analysis", Budget(ANALYSIS_BUDGET_MS), ExtractionMetrics.PRE_PASS, ExtractionMetrics.TEMPLATE_WALK,
+                ExtractionMetrics.RESOLUTION, ExtractionMetrics.STYLE_MATCHING, ExtractionMetrics.RENDERING);
+        AssertPhase("write", Budget(WRITE_BUDGET_MS), ExtractionMetrics.FILE_CREATION, ExtractionMetrics.TEMPLATE_EDITS,
+                ExtractionMetrics.STYLE_EDITS, ExtractionMetrics.MODULE_UPDATE);
+        AssertPhase("reformat", Budget(REFORMAT_BUDGET_MS), ExtractionMetrics.REFORMAT);
+
+        PlatformTestUtil.startPerformanceTest("Extract component: VFS update", Budget(VFS_UPDATE_BUDGET_MS), this::UpdateVfs)
+                .setup(() -> {
+                    SelectNextFragment();
+                    InvokeHandler();
+                })
+                .attempts(ATTEMPTS)
+                .assertTiming();
+    }
+
+    private static int Budget(int budgetMs) {
+        return (int) Math.round(budgetMs * BUDGET_FACTOR);
+    }
+
+    private void AssertPhase(String phase, int budgetMs, String... metricPhases) {
+        double bestMs = Double.MAX_VALUE;
+        for (ExtractionMetrics metrics : attemptMetrics) {
+            double attemptMs = 0;
+            for (String metricPhase : metricPhases) {
+                attemptMs += metrics.PhaseMillis(metricPhase);
+            }
+            bestMs = Math.min(bestMs, attemptMs);
+        }
+        assertTrue("Extract component: " + phase + " took " + bestMs + "ms at best, its budget is " + budgetMs + "ms", bestMs <= budgetMs);
+    }
+
+    private void SelectNextFragment() {
+        int component = nextComponent++ % COMPONENT_COUNT;
+        componentName = "Extracted" + component;
+        myFixture.configureFromTempProjectFile(SyntheticClientApp.TemplatePath(component));
+        Editor editor = myFixture.getEditor();
+        String text = editor.getDocument().getText();
+        int start = text.indexOf(SyntheticClientApp.EXTRACT_START);
+        int end = text.indexOf(SyntheticClientApp.EXTRACT_END) + "</div>".length();
+        editor.getSelectionModel().setSelection(start, end);
+    }
+
+    /**
+     * The analysis task runs synchronously in tests, the files are written when the handler returns.
+     */
+    private void InvokeHandler() {
+        ExtractionMetrics metrics = new ExtractionMetrics();
+        new ExtractComponentHandler(() -> metrics).invoke(getProject(), myFixture.getEditor(), myFixture.getFile(),
+                SimpleDataContext.getProjectContext(getProject()));
+        PlatformTestUtil.dispatchAllInvocationEventsInIdeEventQueue();
+        assertFalse(CreatedFiles().isEmpty());
+        attemptMetrics.add(metrics);
+    }
+
+    private void UpdateVfs() {
+        FileDocumentManager.getInstance().saveAllDocuments();
+        List<VirtualFile> changedFiles = new ArrayList<>();
+        for (PsiFile createdFile : CreatedFiles()) {
+            changedFiles.add(createdFile.getVirtualFile());
+        }
+        changedFiles.add(myFixture.getFile().getVirtualFile());
+        VfsUtil.markDirtyAndRefresh(false, false, false, changedFiles.toArray(VirtualFile.EMPTY_ARRAY));
+    }
+
+    private List<PsiFile> CreatedFiles() {
+        String componentHyphen = CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_HYPHEN, componentName);
+        PsiDirectory directory = myFixture.getFile().getContainingDirectory();
+        List<PsiFile> createdFiles = new ArrayList<>();
+        for (String name : new String[]{componentHyphen + ".component.ts", componentHyphen + ".component.html"}) {
+            PsiFile createdFile = directory.findFile(name);
+            if (createdFile != null) createdFiles.add(createdFile);
+        }
+        return createdFiles;
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes an Angular CLI style ClientApp with many feature components and deeply nested templates.
+ * Every template contains one `<div class="extract-me">` at its deepest level to be extracted.
+ */
+public class SyntheticClientApp {
+    public static final String EXTRACT_START = "<div class=\"extract-me\">";
+    public static final String EXTRACT_END = "</div><!--extract-me-->";
+
+    public static void main(String[] args) throws IOException {
+        Generate(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+    }
+
+    public static void Generate(Path root, int componentCount, int templateDepth) throws IOException {
+        Write(root.resolve("package.json"), "{\n  \"name\": \"client-app\",\n  \"dependencies\": {\n    \"@angular/core\": \"6.1.10\"\n  }\n}\n");
+        Path angularCore = root.resolve("node_modules/@angular/core");
+        Write(angularCore.resolve("package.json"), "{\n  \"name\": \"@angular/core\",\n  \"version\": \"6.1.10\",\n  \"typings\": \"./core.d.ts\"\n}\n");
+        Write(angularCore.resolve("core.d.ts"), AngularCoreTypings());
+
+        StringBuilder imports = new StringBuilder();
+        StringBuilder declarations = new StringBuilder();
+        for (int i = 0; i < componentCount; i++) {
+            String name = FeatureName(i);
+            Path featureDir = root.resolve("src/app/" + name);
+            Write(featureDir.resolve(name + ".component.ts"), ComponentTs(i));
+            Write(featureDir.resolve(name + ".component.html"), ComponentHtml(i, templateDepth));
+            imports.append("import { ").append(ClassName(i)).append(" } from './").append(name).append('/').append(name).append(".component';\n");
+            declarations.append("    ").append(ClassName(i)).append(i < componentCount - 1 ? ",\n" : "\n");
+        }
+        Write(root.resolve("src/app/app.module.ts"), "import { NgModule } from '@angular/core';\n" + imports +
+                "\n@NgModule({\n  declarations: [\n" + declarations + "  ]\n})\nexport class AppModule { }\n");
+    }
+
+    public static String TemplatePath(int index) {
+        return "src/app/" + FeatureName(index) + "/" + FeatureName(index) + ".component.html";
+    }
+
+    private static String FeatureName(int index) {
+        return "feature" + index;
+    }
+
+    private static String ClassName(int index) {
+        return "Feature" + index + "Component";
+    }
+
+    private static String ComponentTs(int index) {
+        return "import { Component } from '@angular/core';\n\n" +
+                "export interface Row {\n  id: number;\n  label: string;\n  children: Row[];\n}\n\n" +
+                "@Component({\n  selector: 'app-" + FeatureName(index) + "',\n  templateUrl: './" + FeatureName(index) + ".component.html'\n})\n" +
+                "export class " + ClassName(index) + " {\n" +
+                "  title = 'Feature " + index + "';\n" +
+                "  query: string;\n" +
+                "  rows: Row[] = [];\n" +
+                "  selected: Row;\n\n" +
+                "  format(row: Row): string {\n    return row.label.toUpperCase();\n  }\n\n" +
+                "  select(row: Row) {\n    this.selected = row;\n  }\n" +
+                "}\n";
+    }
+
+    private static String ComponentHtml(int index, int depth) {
+        StringBuilder html = new StringBuilder();
+        html.append("<h1>{{ title }}</h1>\n");
+        html.append("<input [(ngModel)]=\"query\">\n");
+        html.append("<div *ngFor=\"let row of rows; let i = index\" [title]=\"row.label\">\n");
+        String indent = "  ";
+        for (int level = 0; level < depth; level++) {
+            html.append(indent).append("<div class=\"level").append(level).append("\" [class.selected]=\"row === selected\" (click)=\"select(row)\">\n");
+            html.append(indent).append("  <span>{{ format(row) }} {{ i }} {{ query }}</span>\n");
+            indent += "  ";
+        }
+        html.append(indent).append(EXTRACT_START).append("\n");
+        html.append(indent).append("  <label [title]=\"title\">{{ format(row) }}</label>\n");
+        html.append(indent).append("  <input [(ngModel)]=\"row.label\">\n");
+        html.append(indent).append("  <button (click)=\"select(row)\">Select {{ i }}</button>\n");
+        html.append(indent).append("  <ul>\n");
+        html.append(indent).append("    <li *ngFor=\"let child of row.children\">{{ child.label }} {{ query }}</li>\n");
+        html.append(indent).append("  </ul>\n");
+        html.append(indent).append(EXTRACT_END).append("\n");
+        for (int level = depth - 1; level >= 0; level--) {
+            indent = indent.substring(2);
+            html.append(indent).append("</div>\n");
+        }
+        html.append("</div>\n");
+        return html.toString();
+    }
+
+    private static String AngularCoreTypings() {
+        return "export declare function Component(obj: any): any;\n" +
+                "export declare function NgModule(obj: any): any;\n" +
+                "export declare function Input(bindingPropertyName?: string): any;\n" +
+                "export declare function Output(bindingPropertyName?: string): any;\n" +
+                "export declare class EventEmitter<T> {\n  emit(value?: T): void;\n}\n";
+    }
+
+    private static void Write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the batch extraction on more templates than one write command takes, all of them declared in the same module,
+ * so every write command after the first finds the module edited by the one before.
+ */
+public class BatchExtractComponentStarterTest extends LightPlatformCodeInsightFixtureTestCase {
+    private static final int COMPONENT_COUNT = BatchExtractComponentStarter.TEMPLATES_PER_WRITE * 2 + 1;
+    private static final String FRAGMENT = "<p>{{ title }}</p>";
+
+    private boolean declareInNgModule;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ExtractComponentSettings settings = ExtractComponentSettings.getInstance();
+        declareInNgModule = settings.declareInNgModule;
+        settings.declareInNgModule = true;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            ExtractComponentSettings.getInstance().declareInNgModule = declareInNgModule;
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testBatchesShareOneModule() {
+        myFixture.addFileToProject("package.json", "{\n  \"dependencies\": {\n    \"@angular/core\": \"6.1.10\"\n  }\n}\n");
+        myFixture.addFileToProject("node_modules/@angular/core/package.json",
+                "{\n  \"name\": \"@angular/core\",\n  \"version\": \"6.1.10\",\n  \"typings\": \"./core.d.ts\"\n}\n");
+        myFixture.addFileToProject("node_modules/@angular/core/core.d.ts",
+                "export declare function Component(obj: any): any;\nexport declare function NgModule(obj: any): any;\n");
+
+        StringBuilder imports = new StringBuilder();
+        StringBuilder declarations = new StringBuilder();
+        List<BatchExtractComponentStarter.ManifestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < COMPONENT_COUNT; i++) {
+            String name = "feature" + i;
+            myFixture.addFileToProject("src/app/" + name + ".component.ts", "import { Component } from '@angular/core';\n\n" +
+                    "@Component({\n  selector: 'app-" + name + "',\n  templateUrl: './" + name + ".component.html'\n})\n" +
+                    "export class Feature" + i + "Component {\n  title = 'Feature " + i + "';\n}\n");
+            String html = "<h1>Feature</h1>\n" + FRAGMENT + "\n";
+            myFixture.addFileToProject("src/app/" + name + ".component.html", html);
+            imports.append("import { Feature").append(i).append("Component } from './").append(name).append(".component';\n");
+            declarations.append("    Feature").append(i).append("Component,\n");
+            int start = html.indexOf(FRAGMENT);
+            entries.add(new BatchExtractComponentStarter.ManifestEntry("src/app/" + name + ".component.html",
+                    new TextRange(start, start + FRAGMENT.length()), "Detail" + i));
+        }
+        PsiFile moduleFile = myFixture.addFileToProject("src/app/app.module.ts", "import { NgModule } from '@angular/core';\n" + imports +
+                "\n@NgModule({\n  declarations: [\n" + declarations + "  ]\n})\nexport class AppModule { }\n");
+
+        VirtualFile baseDir = myFixture.getTempDirFixture().getFile("");
+        int failures = BatchExtractComponentStarter.Extract(getProject(), baseDir, entries, new ExtractionMetrics());
+
+        assertEquals(0, failures);
+        String moduleText = moduleFile.getText();
+        for (int i = 0; i < COMPONENT_COUNT; i++) {
+            assertNotNull(baseDir.findFileByRelativePath("src/app/detail" + i + ".component.ts"));
+            //imported and declared
+            assertEquals(2, StringUtil.getOccurrenceCount(moduleText, "Detail" + i + "Component"));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import com.intellij.lang.javascript.psi.ecma6.TypeScriptFunction;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+
+/**
+ * Methods reading state their arguments don't carry must not become pure pipes, a pure pipe would never see it change.
+ */
+public class PurePipeFactoryTest extends LightPlatformCodeInsightFixtureTestCase {
+    public void testArgumentsOnlyIsPure() {
+        assertNotNull(PipeFrom("label(text: string) {\n    return text.trim().toUpperCase();\n  }"));
+    }
+
+    public void testQualifiedPageGlobalIsNotPure() {
+        assertNull(PipeFrom("isWide(width: number) {\n    return window.innerWidth > width;\n  }"));
+        assertNull(PipeFrom("titled(text: string) {\n    return document.title + text;\n  }"));
+    }
+
+    public void testUnqualifiedPageGlobalIsNotPure() {
+        assertNull(PipeFrom("isWide(width: number) {\n    return innerWidth > width;\n  }"));
+        assertNull(PipeFrom("stored(count: number) {\n    return localStorage.length > count;\n  }"));
+    }
+
+    public void testHelperReadingModuleLetIsNotPure() {
+        myFixture.addFileToProject("scale.ts", "let factor = 2;\n\nexport function scale(value: number) {\n  return value * factor;\n}\n");
+        assertNull(PipeFrom("scaled(value: number) {\n    return scale(value);\n  }", "import { scale } from './scale';\n"));
+    }
+
+    public void testHelperReadingModuleConstIsPure() {
+        myFixture.addFileToProject("scale.ts", "const factor = 2;\n\nexport function scale(value: number) {\n  return value * factor;\n}\n");
+        assertNotNull(PipeFrom("scaled(value: number) {\n    return scale(value);\n  }", "import { scale } from './scale';\n"));
+    }
+
+    private PipeDefinition PipeFrom(String methodText) {
+        return PipeFrom(methodText, "");
+    }
+
+    private PipeDefinition PipeFrom(String methodText, String imports) {
+        myFixture.configureByText("list.component.ts", imports + "\nexport class ListComponent {\n  " + methodText + "\n}\n");
+        TypeScriptFunction method = PsiTreeUtil.findChildOfType(myFixture.getFile(), TypeScriptFunction.class);
+        assertNotNull(method);
+        return PurePipeFactory.FromMethod(method, null, new ExtractionMetrics());
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Receives what {@link ExpressionScanner} finds in an Angular expression, as offsets into the scanned text.
+ */
+public interface ExpressionHandler {
+    /**
+     * The start of a reference chain, `item` in `item.price`, `user` in `this.user`.
+     */
+    void Reference(int start, int end);
+
+    /**
+     * @param calleeEnd end of the called chain, `format` in `format(price)`
+     */
+    void Call(int start, int calleeEnd, int end);
+
+    /**
+     * The name of a pipe, `currency` in `price | currency:code`.
+     */
+    default void Pipe(int nameStart, int nameEnd) {
+    }
+
+    /**
+     * Something Angular doesn't accept in the expression, like `;` in a binding.
+     */
+    default void SyntaxError(int offset) {
+    }
+}
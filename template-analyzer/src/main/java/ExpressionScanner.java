@@ -0,0 +1,166 @@
+/**
+ * Finds the references and calls an Angular expression binds to, skipping literals, members, object literal keys
+ * and pipe names. A call is bound as a whole, its arguments aren't, except for the `$any()` cast which is transparent.
+ */
+public class ExpressionScanner {
+    private static final String[] LITERAL_KEYWORDS = {"true", "false", "null", "undefined"};
+
+    public static void Scan(CharSequence text, int start, int end, ExpressionHandler handler) {
+        Scan(text, start, end, false, handler);
+    }
+
+    /**
+     * @param isAction an event handler, which may chain statements with `;`, a binding may not
+     */
+    public static void Scan(CharSequence text, int start, int end, boolean isAction, ExpressionHandler handler) {
+        int braceDepth = 0;
+        int depth = 0;
+        char previous = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                i = SkipString(text, i, end);
+            } else if (Character.isDigit(c)) {
+                while (i < end && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '.')) i++;
+            } else if (c == '|') {
+                if (i + 1 < end && text.charAt(i + 1) == '|') {
+                    i += 2;
+                } else {
+                    //the pipe name isn't bound, its arguments are
+                    int nameStart = SkipWhitespace(text, i + 1, end);
+                    i = SkipIdentifier(text, nameStart, end);
+                    if (i > nameStart) handler.Pipe(nameStart, i);
+                }
+            } else if (IsIdentifierStart(c)) {
+                if (previous == '.') {
+                    //a member of whatever came before, `foo().bar`
+                    i = SkipIdentifier(text, i, end);
+                } else {
+                    i = ScanChain(text, i, end, braceDepth > 0 && (previous == '{' || previous == ','), handler);
+                }
+                c = 'a';
+            } else {
+                if (c == '{') braceDepth++;
+                if (c == '}') braceDepth--;
+                if (c == '(' || c == '[' || c == '{') depth++;
+                if (c == ')' || c == ']' || c == '}') depth--;
+                if (c == ';' && depth == 0 && !isAction) handler.SyntaxError(i);
+                i++;
+            }
+            previous = c;
+        }
+    }
+
+    private static int ScanChain(CharSequence text, int start, int end, boolean mayBeKey, ExpressionHandler handler) {
+        int identifierEnd = SkipIdentifier(text, start, end);
+        int next = SkipWhitespace(text, identifierEnd, end);
+        if (mayBeKey && next < end && text.charAt(next) == ':') return identifierEnd;
+        if (IsLiteralKeyword(text, start, identifierEnd)) return identifierEnd;
+
+        int referenceStart = start;
+        int referenceEnd = identifierEnd;
+        int chainEnd = identifierEnd;
+        if (RegionEquals(text, start, identifierEnd, "this")) {
+            int memberStart = MemberStart(text, identifierEnd, end);
+            if (memberStart < 0) return identifierEnd;
+            referenceStart = memberStart;
+            referenceEnd = SkipIdentifier(text, memberStart, end);
+            chainEnd = referenceEnd;
+        }
+        boolean qualified = false;
+        int memberStart;
+        while ((memberStart = MemberStart(text, chainEnd, end)) >= 0) {
+            chainEnd = SkipIdentifier(text, memberStart, end);
+            qualified = true;
+        }
+
+        int afterChain = SkipWhitespace(text, chainEnd, end);
+        if (afterChain < end && text.charAt(afterChain) == '(') {
+            //the caller scans the argument of the cast like any other expression
+            if (!qualified && RegionEquals(text, start, identifierEnd, "$any")) return afterChain;
+            int callEnd = FindClosingParenthesis(text, afterChain, end);
+            handler.Call(start, chainEnd, callEnd);
+            if (qualified) handler.Reference(referenceStart, referenceEnd);
+            return callEnd;
+        }
+        handler.Reference(referenceStart, referenceEnd);
+        return chainEnd;
+    }
+
+    /**
+     * @return the start of the member after `.` or `?.` at offset, -1 when there is none
+     */
+    private static int MemberStart(CharSequence text, int offset, int end) {
+        int i = offset;
+        if (i < end && text.charAt(i) == '?') i++;
+        if (i >= end || text.charAt(i) != '.') return -1;
+        i++;
+        return i < end && IsIdentifierStart(text.charAt(i)) ? i : -1;
+    }
+
+    public static int FindClosingParenthesis(CharSequence text, int open, int end) {
+        int depth = 0;
+        int i = open;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = SkipString(text, i, end);
+                continue;
+            }
+            if (c == '(') depth++;
+            if (c == ')' && --depth == 0) return i + 1;
+            i++;
+        }
+        return end;
+    }
+
+    public static int SkipString(CharSequence text, int quoteOffset, int end) {
+        char quote = text.charAt(quoteOffset);
+        int i = quoteOffset + 1;
+        while (i < end && text.charAt(i) != quote) {
+            if (text.charAt(i) == '\\') i++;
+            i++;
+        }
+        return Math.min(i + 1, end);
+    }
+
+    public static int SkipIdentifier(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && IsIdentifierPart(text.charAt(i))) i++;
+        return i;
+    }
+
+    public static int SkipWhitespace(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+
+    public static boolean IsIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    public static boolean IsIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    public static boolean RegionEquals(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean IsLiteralKeyword(CharSequence text, int start, int end) {
+        for (String keyword : LITERAL_KEYWORDS) {
+            if (RegionEquals(text, start, end, keyword)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What {@link FastTemplateAnalyzer} found in a template: the same inputs and outputs the plugin infers from PSI,
+ * without types.
+ */
+public class FastTemplateAnalysis {
+    public final List<InputField> inputFields;
+    public final List<OutputField> outputFields;
+    public final int bindingCount;
+    public final int eventCount;
+    /**
+     * Expressions Angular would reject, the PSI analysis is what reports them.
+     */
+    public final int syntaxErrorCount;
+    /**
+     * Tag names in lower case.
+     */
+    public final Set<String> elementNames;
+    /**
+     * Attribute names without their binding syntax, `ngModel` for `[(ngModel)]`, `ngIf` for `*ngIf`, `keyup` for `(keyup.enter)`.
+     * Template references and variables are left out, so are `attr.`, `class.` and `style.` bindings.
+     */
+    public final Set<String> attributeNames;
+    public final Set<String> pipeNames;
+
+    public FastTemplateAnalysis(List<InputField> inputFields, List<OutputField> outputFields, int bindingCount, int eventCount,
+                                int syntaxErrorCount, Set<String> elementNames, Set<String> attributeNames, Set<String> pipeNames) {
+        this.inputFields = Collections.unmodifiableList(inputFields);
+        this.outputFields = Collections.unmodifiableList(outputFields);
+        this.bindingCount = bindingCount;
+        this.eventCount = eventCount;
+        this.syntaxErrorCount = syntaxErrorCount;
+        this.elementNames = Collections.unmodifiableSet(elementNames);
+        this.attributeNames = Collections.unmodifiableSet(attributeNames);
+        this.pipeNames = Collections.unmodifiableSet(pipeNames);
+    }
+
+    /**
+     * @return true when the template has neither bindings nor events, so extracting it needs no inputs or outputs.
+     * Anything the scan can't read is treated as not static, skipping the PSI walk must never drop an input.
+     */
+    public boolean IsStatic() {
+        return bindingCount == 0 && eventCount == 0 && syntaxErrorCount == 0;
+    }
+}
@@ -0,0 +1,360 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Infers the inputs and outputs of a template fragment from its text alone, with no IDE and no PSI.
+ * Names declared by the template itself, `*ngFor` and `as` variables and `let-` references, are only visible inside
+ * the tag declaring them, like they are for the PSI based analysis. A `#` reference is visible in the whole fragment,
+ * `*ngIf="a; else loading"` may come before the `<ng-template #loading>` it refers to.
+ */
+public class FastTemplateAnalyzer implements TemplateTokenHandler, ExpressionHandler {
+    //longest first, `[(` before `[`
+    private static final String[] BINDING_PREFIXES = {"bindon-", "bind-", "on-", "[(", "[", "(", "*"};
+
+    private final CharSequence text;
+    private final Map<String, InputField> twoWayInputs = new LinkedHashMap<>();
+    private final Map<String, InputField> inputs = new LinkedHashMap<>();
+    private final List<OutputField> outputs = new ArrayList<>();
+    private final List<String> locals = new ArrayList<>();
+    private final Set<String> templateReferences = new HashSet<>();
+    private final Set<String> elementNames = new LinkedHashSet<>();
+    private final Set<String> attributeNames = new LinkedHashSet<>();
+    private final Set<String> pipeNames = new LinkedHashSet<>();
+    private int[] scopeLocalCounts = new int[16];
+    private int scopeDepth;
+    //name start, name end, value start, value end of every attribute of the current tag
+    private int[] attributes = new int[32];
+    private int attributeCount;
+    private int bindingCount;
+    private int eventCount;
+    private int syntaxErrorCount;
+
+    private boolean scanningTwoWay;
+    private boolean scanningEvent;
+    private int eventStart;
+    private int eventEnd;
+    private String eventName;
+
+    private FastTemplateAnalyzer(CharSequence text) {
+        this.text = text;
+    }
+
+    public static FastTemplateAnalysis Analyze(CharSequence text) {
+        FastTemplateAnalyzer analyzer = new FastTemplateAnalyzer(text);
+        TemplateTokenizer.Tokenize(text, analyzer);
+        //a `{{` the tokenizer didn't read as an interpolation, `a <b {{ c }}` taken for a tag, must not pass as static
+        if (analyzer.bindingCount == 0 && analyzer.IndexOfInterpolation() >= 0) analyzer.syntaxErrorCount++;
+        //a reference declared anywhere in the fragment is only known once all of it was read
+        List<InputField> inputFields = new ArrayList<>();
+        for (InputField inputField : analyzer.twoWayInputs.values()) {
+            if (!analyzer.templateReferences.contains(inputField.fieldName)) inputFields.add(inputField);
+        }
+        for (InputField inputField : analyzer.inputs.values()) {
+            if (!analyzer.twoWayInputs.containsKey(inputField.fieldName) && !analyzer.templateReferences.contains(inputField.fieldName)) {
+                inputFields.add(inputField);
+            }
+        }
+        return new FastTemplateAnalysis(inputFields, analyzer.outputs, analyzer.bindingCount, analyzer.eventCount, analyzer.syntaxErrorCount,
+                analyzer.elementNames, analyzer.attributeNames, analyzer.pipeNames);
+    }
+
+    @Override
+    public void TagStart(int nameStart, int nameEnd) {
+        attributeCount = 0;
+        elementNames.add(text.subSequence(nameStart, nameEnd).toString().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void Attribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if ((attributeCount + 1) * 4 > attributes.length) attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        int i = attributeCount++ * 4;
+        attributes[i] = nameStart;
+        attributes[i + 1] = nameEnd;
+        attributes[i + 2] = valueStart;
+        attributes[i + 3] = valueEnd;
+    }
+
+    @Override
+    public void TagStartEnd(int end, boolean closed) {
+        if (scopeDepth == scopeLocalCounts.length) scopeLocalCounts = Arrays.copyOf(scopeLocalCounts, scopeDepth * 2);
+        scopeLocalCounts[scopeDepth++] = locals.size();
+        //every attribute of a tag sees the names any of them declares
+        for (int i = 0; i < attributeCount * 4; i += 4) {
+            DeclareLocals(attributes[i], attributes[i + 1], attributes[i + 2], attributes[i + 3]);
+        }
+        for (int i = 0; i < attributeCount * 4; i += 4) {
+            ScanAttribute(attributes[i], attributes[i + 1], attributes[i + 2], attributes[i + 3]);
+            String attributeName = AttributeName(attributes[i], attributes[i + 1]);
+            if (attributeName != null) attributeNames.add(attributeName);
+        }
+        if (closed) ExitScope();
+    }
+
+    @Override
+    public void TagEnd(int nameStart, int nameEnd, int end) {
+        if (scopeDepth > 0) ExitScope();
+    }
+
+    private void ExitScope() {
+        int localCount = scopeLocalCounts[--scopeDepth];
+        while (locals.size() > localCount) locals.remove(locals.size() - 1);
+    }
+
+    @Override
+    public void Interpolation(int expressionStart, int expressionEnd) {
+        bindingCount++;
+        ScanBinding(expressionStart, expressionEnd, false);
+    }
+
+    private void DeclareLocals(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (StartsWith(nameStart, nameEnd, "#")) {
+            templateReferences.add(text.subSequence(nameStart + 1, nameEnd).toString());
+        } else if (StartsWith(nameStart, nameEnd, "ref-")) {
+            templateReferences.add(text.subSequence(nameStart + 4, nameEnd).toString());
+        } else if (StartsWith(nameStart, nameEnd, "let-")) {
+            locals.add(text.subSequence(nameStart + 4, nameEnd).toString());
+        } else if (StartsWith(nameStart, nameEnd, "*") && valueStart >= 0) {
+            int segmentStart = valueStart;
+            while (segmentStart < valueEnd) {
+                int segmentEnd = SegmentEnd(segmentStart, valueEnd);
+                DeclareMicrosyntaxLocal(segmentStart, segmentEnd);
+                segmentStart = segmentEnd + 1;
+            }
+        }
+    }
+
+    /**
+     * `let item`, `let i = index` and `index as i` declare a name.
+     */
+    private void DeclareMicrosyntaxLocal(int start, int end) {
+        start = ExpressionScanner.SkipWhitespace(text, start, end);
+        if (IsKeywordAt(start, end, "let")) {
+            int nameStart = ExpressionScanner.SkipWhitespace(text, start + 3, end);
+            int nameEnd = ExpressionScanner.SkipIdentifier(text, nameStart, end);
+            if (nameEnd > nameStart) locals.add(text.subSequence(nameStart, nameEnd).toString());
+            return;
+        }
+        int as = AsKeyword(start, end);
+        if (as >= 0) {
+            int nameStart = ExpressionScanner.SkipWhitespace(text, as + 2, end);
+            int nameEnd = ExpressionScanner.SkipIdentifier(text, nameStart, end);
+            if (nameEnd > nameStart) locals.add(text.subSequence(nameStart, nameEnd).toString());
+        }
+    }
+
+    /**
+     * @return null for template references and variables and for `attr.`, `class.` and `style.` bindings
+     */
+    private String AttributeName(int nameStart, int nameEnd) {
+        if (StartsWith(nameStart, nameEnd, "#") || StartsWith(nameStart, nameEnd, "ref-") || StartsWith(nameStart, nameEnd, "let-")) return null;
+        int start = nameStart;
+        int end = nameEnd;
+        for (String prefix : BINDING_PREFIXES) {
+            if (StartsWith(start, end, prefix)) {
+                start += prefix.length();
+                break;
+            }
+        }
+        while (end > start && (text.charAt(end - 1) == ']' || text.charAt(end - 1) == ')')) end--;
+        int dot = start;
+        while (dot < end && text.charAt(dot) != '.') dot++;
+        if (dot < end && (ExpressionScanner.RegionEquals(text, start, dot, "attr") || ExpressionScanner.RegionEquals(text, start, dot, "class")
+                || ExpressionScanner.RegionEquals(text, start, dot, "style"))) {
+            return null;
+        }
+        return dot > start ? text.subSequence(start, dot).toString() : null;
+    }
+
+    private void ScanAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (valueStart < 0) return;
+        if (StartsWith(nameStart, nameEnd, "[(") || StartsWith(nameStart, nameEnd, "bindon-")) {
+            bindingCount++;
+            ScanBinding(valueStart, valueEnd, true);
+        } else if (StartsWith(nameStart, nameEnd, "[") || StartsWith(nameStart, nameEnd, "bind-")) {
+            bindingCount++;
+            ScanBinding(valueStart, valueEnd, false);
+        } else if (StartsWith(nameStart, nameEnd, "(") || StartsWith(nameStart, nameEnd, "on-")) {
+            eventCount++;
+            ScanEvent(valueStart, valueEnd);
+        } else if (StartsWith(nameStart, nameEnd, "*")) {
+            ScanMicrosyntax(valueStart, valueEnd);
+        } else if (!StartsWith(nameStart, nameEnd, "#") && !StartsWith(nameStart, nameEnd, "ref-")
+                && !StartsWith(nameStart, nameEnd, "let-")) {
+            ScanAttributeInterpolations(valueStart, valueEnd);
+        }
+    }
+
+    /**
+     * title="Hello {{ name }}"
+     */
+    private void ScanAttributeInterpolations(int valueStart, int valueEnd) {
+        int i = valueStart;
+        while (i + 1 < valueEnd) {
+            if (text.charAt(i) != '{' || text.charAt(i + 1) != '{') {
+                i++;
+                continue;
+            }
+            int expressionStart = i + 2;
+            int expressionEnd = expressionStart;
+            while (expressionEnd + 1 < valueEnd && !(text.charAt(expressionEnd) == '}' && text.charAt(expressionEnd + 1) == '}')) {
+                expressionEnd++;
+            }
+            if (expressionEnd + 1 >= valueEnd) expressionEnd = valueEnd;
+            Interpolation(expressionStart, expressionEnd);
+            i = expressionEnd + 2;
+        }
+    }
+
+    private void ScanMicrosyntax(int valueStart, int valueEnd) {
+        int segmentStart = valueStart;
+        boolean first = true;
+        while (segmentStart < valueEnd) {
+            int segmentEnd = SegmentEnd(segmentStart, valueEnd);
+            int start = ExpressionScanner.SkipWhitespace(text, segmentStart, segmentEnd);
+            if (IsKeywordAt(start, segmentEnd, "let")) {
+                //`let item of items` carries an expression after the declared name, `let i = index` doesn't
+                int nameEnd = ExpressionScanner.SkipIdentifier(text, ExpressionScanner.SkipWhitespace(text, start + 3, segmentEnd), segmentEnd);
+                int rest = ExpressionScanner.SkipWhitespace(text, nameEnd, segmentEnd);
+                if (rest < segmentEnd && text.charAt(rest) != '=') {
+                    int expressionStart = SkipMicrosyntaxKey(rest, segmentEnd);
+                    if (expressionStart < segmentEnd) {
+                        bindingCount++;
+                        ScanBinding(expressionStart, segmentEnd, false);
+                    }
+                }
+            } else if (start < segmentEnd) {
+                int as = AsKeyword(start, segmentEnd);
+                int expressionEnd = as >= 0 ? as : segmentEnd;
+                if (!first) start = SkipMicrosyntaxKey(start, expressionEnd);
+                if (start < expressionEnd) {
+                    bindingCount++;
+                    ScanBinding(start, expressionEnd, false);
+                }
+            }
+            first = false;
+            segmentStart = segmentEnd + 1;
+        }
+    }
+
+    /**
+     * `of items`, `trackBy: byId` and `else loading` start with the key of the directive input they set.
+     */
+    private int SkipMicrosyntaxKey(int start, int end) {
+        int keyEnd = ExpressionScanner.SkipIdentifier(text, start, end);
+        int next = ExpressionScanner.SkipWhitespace(text, keyEnd, end);
+        if (next < end && text.charAt(next) == ':') return next + 1;
+        //no whitespace after the identifier, it's already the expression
+        if (next == keyEnd && next < end) return start;
+        //a key on its own, `index as i`, leaves nothing to bind
+        return next;
+    }
+
+    private void ScanBinding(int start, int end, boolean isTwoWay) {
+        scanningTwoWay = isTwoWay;
+        scanningEvent = false;
+        ExpressionScanner.Scan(text, start, end, this);
+    }
+
+    private void ScanEvent(int start, int end) {
+        scanningEvent = true;
+        eventStart = start;
+        eventEnd = end;
+        eventName = null;
+        ExpressionScanner.Scan(text, start, end, true, this);
+        scanningEvent = false;
+        if (eventName != null) outputs.add(new OutputField(eventName, text.subSequence(eventStart, eventEnd).toString()));
+    }
+
+    @Override
+    public void Reference(int start, int end) {
+        if (scanningEvent || IsLocal(start, end)) return;
+        Map<String, InputField> target = scanningTwoWay ? twoWayInputs : inputs;
+        String name = text.subSequence(start, end).toString();
+        if (!target.containsKey(name)) target.put(name, new InputField(name, null, name, scanningTwoWay));
+    }
+
+    @Override
+    public void Call(int start, int calleeEnd, int end) {
+        if (scanningEvent) {
+            //only the first call of an event is used
+            if (eventName == null) eventName = text.subSequence(start, calleeEnd).toString();
+            return;
+        }
+        String fieldName = text.subSequence(start, calleeEnd).toString();
+        if (!inputs.containsKey(fieldName)) inputs.put(fieldName, new InputField(fieldName, null, text.subSequence(start, end).toString()));
+    }
+
+    @Override
+    public void Pipe(int nameStart, int nameEnd) {
+        pipeNames.add(text.subSequence(nameStart, nameEnd).toString());
+    }
+
+    @Override
+    public void SyntaxError(int offset) {
+        syntaxErrorCount++;
+    }
+
+    private int IndexOfInterpolation() {
+        for (int i = 0; i + 1 < text.length(); i++) {
+            if (text.charAt(i) == '{' && text.charAt(i + 1) == '{') return i;
+        }
+        return -1;
+    }
+
+    private boolean IsLocal(int start, int end) {
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            if (ExpressionScanner.RegionEquals(text, start, end, locals.get(i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Microsyntax segments are separated by `;` or `,` outside of parentheses, brackets and strings.
+     */
+    private int SegmentEnd(int start, int end) {
+        int depth = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = ExpressionScanner.SkipString(text, i, end);
+                continue;
+            }
+            if (c == '(' || c == '[' || c == '{') depth++;
+            if (c == ')' || c == ']' || c == '}') depth--;
+            if (depth == 0 && (c == ';' || c == ',')) return i;
+            i++;
+        }
+        return end;
+    }
+
+    /**
+     * @return offset of a standalone `as` keyword in the segment, -1 when there is none
+     */
+    private int AsKeyword(int start, int end) {
+        for (int i = start + 1; i + 2 <= end; i++) {
+            if (text.charAt(i) == 'a' && text.charAt(i + 1) == 's' && Character.isWhitespace(text.charAt(i - 1))
+                    && (i + 2 == end || Character.isWhitespace(text.charAt(i + 2)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean IsKeywordAt(int start, int end, String keyword) {
+        int keywordEnd = start + keyword.length();
+        return keywordEnd <= end && ExpressionScanner.RegionEquals(text, start, keywordEnd, keyword)
+                && (keywordEnd == end || Character.isWhitespace(text.charAt(keywordEnd)));
+    }
+
+    private boolean StartsWith(int start, int end, String prefix) {
+        return end - start >= prefix.length() && ExpressionScanner.RegionEquals(text, start, start + prefix.length(), prefix);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * An element subtree and the hash of its structure.
+ */
+public class MarkupFragment {
+    public final int structureHash;
+    public final int startOffset;
+    public final int endOffset;
+    public final int elementCount;
+
+    public MarkupFragment(int structureHash, int startOffset, int endOffset, int elementCount) {
+        this.structureHash = structureHash;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.elementCount = elementCount;
+    }
+}
@@ -0,0 +1,9 @@
+public class OutputField {
+    public OutputField(String eventName, String originalBody) {
+        this.eventName = eventName;
+        this.originalBody = originalBody;
+    }
+
+    public String eventName;
+    public String originalBody;
+}
@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashes the structure of every element subtree in a template: tag names, attribute names, static attribute values
+ * and text. Binding expressions, interpolations and whitespace are left out, so markup repeated with different data
+ * hashes the same. Attribute order doesn't matter, child order does.
+ */
+public class TemplateStructureHasher implements TemplateTokenHandler {
+    private final CharSequence text;
+    private final int minElementCount;
+    private final List<MarkupFragment> fragments = new ArrayList<>();
+    //start offset, hash, element count and attribute hash of every open element
+    private int[] openElements = new int[64];
+    private int depth;
+
+    private TemplateStructureHasher(CharSequence text, int minElementCount) {
+        this.text = text;
+        this.minElementCount = minElementCount;
+    }
+
+    /**
+     * @param minElementCount smaller subtrees aren't reported
+     */
+    public static List<MarkupFragment> Hash(CharSequence text, int minElementCount) {
+        TemplateStructureHasher hasher = new TemplateStructureHasher(text, minElementCount);
+        TemplateTokenizer.Tokenize(text, hasher);
+        //unclosed elements end with the template
+        while (hasher.depth > 0) hasher.FinishElement(text.length());
+        return hasher.fragments;
+    }
+
+    @Override
+    public void TagStart(int nameStart, int nameEnd) {
+        if ((depth + 1) * 4 > openElements.length) openElements = Arrays.copyOf(openElements, openElements.length * 2);
+        int i = depth++ * 4;
+        openElements[i] = nameStart - 1;
+        openElements[i + 1] = HashLowerCase(nameStart, nameEnd);
+        openElements[i + 2] = 1;
+        openElements[i + 3] = 0;
+    }
+
+    @Override
+    public void Attribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        int hash = HashRegion(nameStart, nameEnd);
+        if (valueStart >= 0 && !IsBound(nameStart, nameEnd)) {
+            hash = 31 * hash + HashNormalized(valueStart, valueEnd);
+        }
+        //summed so attribute order doesn't change the hash
+        openElements[(depth - 1) * 4 + 3] += hash;
+    }
+
+    @Override
+    public void TagStartEnd(int end, boolean closed) {
+        int i = (depth - 1) * 4;
+        openElements[i + 1] = 31 * openElements[i + 1] + openElements[i + 3];
+        if (closed) FinishElement(end);
+    }
+
+    @Override
+    public void TagEnd(int nameStart, int nameEnd, int end) {
+        if (depth > 0) FinishElement(end);
+    }
+
+    @Override
+    public void Interpolation(int expressionStart, int expressionEnd) {
+        AddToParent(0x7b7b7d7d);
+    }
+
+    @Override
+    public void Text(int start, int end) {
+        int hash = HashNormalized(start, end);
+        if (hash != 0) AddToParent(hash);
+    }
+
+    private void FinishElement(int end) {
+        int i = --depth * 4;
+        int start = openElements[i];
+        int hash = openElements[i + 1];
+        int elementCount = openElements[i + 2];
+        if (elementCount >= minElementCount) fragments.add(new MarkupFragment(hash, start, end, elementCount));
+        if (depth > 0) {
+            openElements[(depth - 1) * 4 + 2] += elementCount;
+            AddToParent(hash);
+        }
+    }
+
+    private void AddToParent(int hash) {
+        if (depth == 0) return;
+        int i = (depth - 1) * 4 + 1;
+        openElements[i] = 31 * openElements[i] + hash;
+    }
+
+    private boolean IsBound(int nameStart, int nameEnd) {
+        char first = text.charAt(nameStart);
+        return first == '[' || first == '(' || first == '*' || first == '#' || RegionStartsWith(nameStart, nameEnd, "bind")
+                || RegionStartsWith(nameStart, nameEnd, "on-") || RegionStartsWith(nameStart, nameEnd, "let-")
+                || RegionStartsWith(nameStart, nameEnd, "ref-");
+    }
+
+    private boolean RegionStartsWith(int start, int end, String prefix) {
+        return end - start >= prefix.length() && ExpressionScanner.RegionEquals(text, start, start + prefix.length(), prefix);
+    }
+
+    private int HashRegion(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) hash = 31 * hash + text.charAt(i);
+        return hash;
+    }
+
+    private int HashLowerCase(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        return hash;
+    }
+
+    /**
+     * Runs of whitespace count as a single space and leading or trailing whitespace not at all, 0 for blank text.
+     */
+    private int HashNormalized(int start, int end) {
+        int hash = 0;
+        boolean pendingSpace = false;
+        boolean any = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = any;
+                continue;
+            }
+            if (pendingSpace) hash = 31 * hash + ' ';
+            pendingSpace = false;
+            any = true;
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+}
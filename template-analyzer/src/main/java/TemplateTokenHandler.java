@@ -0,0 +1,33 @@
+/**
+ * Receives the tokens of an Angular template as offsets into the tokenized text, so tokenizing allocates nothing.
+ */
+public interface TemplateTokenHandler {
+    void TagStart(int nameStart, int nameEnd);
+
+    /**
+     * @param valueStart -1 when the attribute has no value
+     */
+    void Attribute(int nameStart, int nameEnd, int valueStart, int valueEnd);
+
+    /**
+     * @param end    offset just past the `>` of the start tag
+     * @param closed true for `<br/>` and void elements like `<input>`, they get no {@link #TagEnd}
+     */
+    void TagStartEnd(int end, boolean closed);
+
+    /**
+     * @param end offset just past the `>` of the end tag
+     */
+    void TagEnd(int nameStart, int nameEnd, int end);
+
+    /**
+     * The expression between `{{` and `}}` in text content.
+     */
+    void Interpolation(int expressionStart, int expressionEnd);
+
+    /**
+     * Text content outside of tags and interpolations, including whitespace between tags.
+     */
+    default void Text(int start, int end) {
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * A forgiving single pass tokenizer for Angular HTML templates. It never fails, malformed markup is tokenized as far
+ * as it makes sense and the rest is skipped.
+ */
+public class TemplateTokenizer {
+    private static final String[] VOID_ELEMENTS = {"area", "base", "br", "col", "embed", "hr", "img", "input", "link",
+            "meta", "param", "source", "track", "wbr"};
+
+    private final CharSequence text;
+    private final int end;
+    private final TemplateTokenHandler handler;
+    private int offset;
+
+    private TemplateTokenizer(CharSequence text, int start, int end, TemplateTokenHandler handler) {
+        this.text = text;
+        this.end = end;
+        this.handler = handler;
+        this.offset = start;
+    }
+
+    public static void Tokenize(CharSequence text, TemplateTokenHandler handler) {
+        Tokenize(text, 0, text.length(), handler);
+    }
+
+    public static void Tokenize(CharSequence text, int start, int end, TemplateTokenHandler handler) {
+        new TemplateTokenizer(text, start, end, handler).Run();
+    }
+
+    private void Run() {
+        int textStart = offset;
+        while (offset < end) {
+            char c = text.charAt(offset);
+            if (c == '<') {
+                if (StartsWith("<!--")) {
+                    FlushText(textStart);
+                    SkipPast("-->");
+                } else if (StartsWith("</")) {
+                    FlushText(textStart);
+                    EndTag();
+                } else if (offset + 1 < end && IsNameStart(text.charAt(offset + 1))) {
+                    FlushText(textStart);
+                    StartTag();
+                } else {
+                    offset++;
+                    continue;
+                }
+                textStart = offset;
+            } else if (c == '{' && StartsWith("{{")) {
+                FlushText(textStart);
+                int expressionStart = offset + 2;
+                int expressionEnd = IndexOf("}}", expressionStart);
+                if (expressionEnd < 0) expressionEnd = end;
+                handler.Interpolation(expressionStart, expressionEnd);
+                offset = Math.min(expressionEnd + 2, end);
+                textStart = offset;
+            } else {
+                offset++;
+            }
+        }
+        FlushText(textStart);
+    }
+
+    private void FlushText(int textStart) {
+        if (offset > textStart) handler.Text(textStart, offset);
+    }
+
+    private void StartTag() {
+        offset++;
+        int nameStart = offset;
+        while (offset < end && IsNameChar(text.charAt(offset))) offset++;
+        int nameEnd = offset;
+        handler.TagStart(nameStart, nameEnd);
+        while (offset < end) {
+            SkipWhitespace();
+            if (offset >= end) break;
+            char c = text.charAt(offset);
+            if (c == '>') {
+                offset++;
+                boolean isVoid = IsVoidElement(nameStart, nameEnd);
+                handler.TagStartEnd(offset, isVoid);
+                if (!isVoid && (RegionMatches(nameStart, nameEnd, "script") || RegionMatches(nameStart, nameEnd, "style"))) {
+                    SkipRawText(nameStart, nameEnd);
+                }
+                return;
+            }
+            if (c == '/' && StartsWith("/>")) {
+                offset += 2;
+                handler.TagStartEnd(offset, true);
+                return;
+            }
+            Attribute();
+        }
+        handler.TagStartEnd(offset, true);
+    }
+
+    private void Attribute() {
+        int nameStart = offset;
+        //[(ngModel)] and (click) keep their brackets as part of the name
+        while (offset < end) {
+            char c = text.charAt(offset);
+            if (Character.isWhitespace(c) || c == '=' || c == '>' || (c == '/' && StartsWith("/>"))) break;
+            offset++;
+        }
+        int nameEnd = offset;
+        if (nameEnd == nameStart) {
+            offset++;
+            return;
+        }
+        SkipWhitespace();
+        if (offset >= end || text.charAt(offset) != '=') {
+            handler.Attribute(nameStart, nameEnd, -1, -1);
+            return;
+        }
+        offset++;
+        SkipWhitespace();
+        if (offset >= end) {
+            handler.Attribute(nameStart, nameEnd, -1, -1);
+            return;
+        }
+        char quote = text.charAt(offset);
+        int valueStart;
+        int valueEnd;
+        if (quote == '"' || quote == '\'') {
+            valueStart = offset + 1;
+            valueEnd = valueStart;
+            while (valueEnd < end && text.charAt(valueEnd) != quote) valueEnd++;
+            offset = Math.min(valueEnd + 1, end);
+        } else {
+            valueStart = offset;
+            while (offset < end && !Character.isWhitespace(text.charAt(offset)) && text.charAt(offset) != '>') offset++;
+            valueEnd = offset;
+        }
+        handler.Attribute(nameStart, nameEnd, valueStart, valueEnd);
+    }
+
+    private void EndTag() {
+        offset += 2;
+        int nameStart = offset;
+        while (offset < end && IsNameChar(text.charAt(offset))) offset++;
+        int nameEnd = offset;
+        SkipPast(">");
+        handler.TagEnd(nameStart, nameEnd, offset);
+    }
+
+    private void SkipRawText(int nameStart, int nameEnd) {
+        while (offset < end) {
+            int closeStart = IndexOf("</", offset);
+            if (closeStart < 0) {
+                offset = end;
+                return;
+            }
+            offset = closeStart;
+            if (RegionMatches(offset + 2, Math.min(offset + 2 + nameEnd - nameStart, end), text, nameStart, nameEnd)) return;
+            offset += 2;
+        }
+    }
+
+    private boolean IsVoidElement(int nameStart, int nameEnd) {
+        for (String voidElement : VOID_ELEMENTS) {
+            if (RegionMatches(nameStart, nameEnd, voidElement)) return true;
+        }
+        return false;
+    }
+
+    private boolean RegionMatches(int start, int regionEnd, String expected) {
+        if (regionEnd - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean RegionMatches(int start, int regionEnd, CharSequence other, int otherStart, int otherEnd) {
+        if (regionEnd - start != otherEnd - otherStart) return false;
+        for (int i = 0; i < regionEnd - start; i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != Character.toLowerCase(other.charAt(otherStart + i))) return false;
+        }
+        return true;
+    }
+
+    private boolean StartsWith(String prefix) {
+        if (offset + prefix.length() > end) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(offset + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int IndexOf(String needle, int from) {
+        int last = end - needle.length();
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < needle.length(); j++) {
+                if (text.charAt(i + j) != needle.charAt(j)) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void SkipPast(String needle) {
+        int index = IndexOf(needle, offset);
+        offset = index < 0 ? end : index + needle.length();
+    }
+
+    private void SkipWhitespace() {
+        while (offset < end && Character.isWhitespace(text.charAt(offset))) offset++;
+    }
+
+    private static boolean IsNameStart(char c) {
+        return Character.isLetter(c);
+    }
+
+    private static boolean IsNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':' || c == '.';
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExpressionScannerTest {
+    @Test
+    public void ReferenceChainBindsItsStart() {
+        assertEquals(Arrays.asList("ref user", "ref order"), Scan("user?.address.city + order.total", false));
+    }
+
+    @Test
+    public void ThisMemberIsTheReference() {
+        assertEquals(Collections.singletonList("ref user"), Scan("this.user.name", false));
+    }
+
+    @Test
+    public void LiteralsAreSkipped() {
+        assertEquals(Collections.emptyList(), Scan("true && 'user' || 12.5 || null || undefined", false));
+    }
+
+    @Test
+    public void CallArgumentsAreNotScanned() {
+        assertEquals(Collections.singletonList("call format(row, currency)"), Scan("format(row, currency)", false));
+    }
+
+    @Test
+    public void QualifiedCallAlsoBindsItsStart() {
+        assertEquals(Arrays.asList("call user.describe(x)", "ref user"), Scan("user.describe(x)", false));
+    }
+
+    @Test
+    public void MemberOfACallIsSkipped() {
+        assertEquals(Collections.singletonList("call load()"), Scan("load().items", false));
+    }
+
+    @Test
+    public void AnyCastIsTransparent() {
+        assertEquals(Collections.singletonList("ref item"), Scan("$any(item).label", false));
+    }
+
+    @Test
+    public void PipeNameIsSkippedItsArgumentsAreNot() {
+        assertEquals(Arrays.asList("ref price", "pipe currency", "ref code"), Scan("price | currency:code", false));
+    }
+
+    @Test
+    public void OrIsNoPipe() {
+        assertEquals(Arrays.asList("ref a", "ref b"), Scan("a || b", false));
+    }
+
+    @Test
+    public void ObjectLiteralKeysAreSkipped() {
+        assertEquals(Collections.singletonList("ref isActive"), Scan("{ active: isActive }", false));
+    }
+
+    @Test
+    public void SemicolonIsASyntaxErrorInABindingOnly() {
+        assertEquals(Arrays.asList("ref a", "error 1"), Scan("a;", false));
+        assertEquals(Arrays.asList("call save()", "call close()"), Scan("save(); close()", true));
+    }
+
+    @Test
+    public void SemicolonInAStringIsNoSyntaxError() {
+        assertEquals(Collections.emptyList(), Scan("'a;b'", false));
+    }
+
+    private static List<String> Scan(String text, boolean isAction) {
+        List<String> found = new ArrayList<>();
+        ExpressionScanner.Scan(text, 0, text.length(), isAction, new ExpressionHandler() {
+            @Override
+            public void Reference(int start, int end) {
+                found.add("ref " + text.substring(start, end));
+            }
+
+            @Override
+            public void Call(int start, int calleeEnd, int end) {
+                found.add("call " + text.substring(start, end));
+            }
+
+            @Override
+            public void Pipe(int nameStart, int nameEnd) {
+                found.add("pipe " + text.substring(nameStart, nameEnd));
+            }
+
+            @Override
+            public void SyntaxError(int offset) {
+                found.add("error " + offset);
+            }
+        });
+        return found;
+    }
+}
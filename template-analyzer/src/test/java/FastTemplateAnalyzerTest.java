@@ -0,0 +1,148 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FastTemplateAnalyzerTest {
+    @Test
+    public void InterpolatedReferenceIsAnInput() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<p>{{ user.name }}</p>");
+        assertEquals(Arrays.asList("user"), InputNames(analysis));
+        assertFalse(analysis.IsStatic());
+    }
+
+    @Test
+    public void PlainMarkupIsStatic() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<div class=\"card\">\n  <p title=\"Plain\">Text</p>\n  <br>\n</div>");
+        assertTrue(analysis.IsStatic());
+        assertTrue(analysis.inputFields.isEmpty());
+    }
+
+    @Test
+    public void CallIsBoundAsAWhole() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<span>{{ format(row, currency) }}</span>");
+        assertEquals(Arrays.asList("format"), InputNames(analysis));
+        assertEquals("format(row, currency)", analysis.inputFields.get(0).originalBody);
+    }
+
+    @Test
+    public void AnyCastIsNotACall() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<span [title]=\"$any(item).label\"></span>");
+        assertEquals(Arrays.asList("item"), InputNames(analysis));
+    }
+
+    @Test
+    public void ElseTemplateInTheFragmentIsNotAnInput() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze(
+                "<div *ngIf=\"loaded; else loading\">{{ data }}</div>\n<ng-template #loading>Loading</ng-template>");
+        assertEquals(Arrays.asList("loaded", "data"), InputNames(analysis));
+    }
+
+    @Test
+    public void ElseTemplateOutsideTheFragmentIsAnInput() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<div *ngIf=\"loaded; else loading\"></div>");
+        assertEquals(Arrays.asList("loaded", "loading"), InputNames(analysis));
+    }
+
+    @Test
+    public void ReferenceIsVisibleInTheWholeFragment() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<button (click)=\"search(box.value)\">Go</button><input #box>");
+        assertTrue(analysis.inputFields.isEmpty());
+        assertEquals(1, analysis.outputFields.size());
+    }
+
+    @Test
+    public void NgForVariableIsOnlyVisibleInItsTag() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze(
+                "<li *ngFor=\"let item of items; let i = index\">{{ i }} {{ item.name }}</li>{{ item }}");
+        assertEquals(Arrays.asList("items", "item"), InputNames(analysis));
+    }
+
+    @Test
+    public void AsVariableIsLocal() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<div *ngIf=\"user$ | async as user\">{{ user.name }}</div>");
+        assertEquals(Arrays.asList("user$"), InputNames(analysis));
+    }
+
+    @Test
+    public void PipeNamesAreNotBound() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("{{ price | currency:code | lowercase }}");
+        assertEquals(Arrays.asList("price", "code"), InputNames(analysis));
+    }
+
+    @Test
+    public void ObjectLiteralKeysAndLiteralsAreNotBound() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<div [ngClass]=\"{ active: isActive, 'is-new': true }\"></div>");
+        assertEquals(Arrays.asList("isActive"), InputNames(analysis));
+    }
+
+    @Test
+    public void TwoWayBindingIsATwoWayInput() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<input [(ngModel)]=\"query\"><span>{{ query }}</span>");
+        assertEquals(1, analysis.inputFields.size());
+        assertTrue(analysis.inputFields.get(0).isTwoWay);
+    }
+
+    @Test
+    public void EventIsAnOutputNamedByItsFirstCall() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<button (click)=\"save(item); close()\">Save</button>");
+        assertEquals(1, analysis.outputFields.size());
+        assertEquals("save", analysis.outputFields.get(0).eventName);
+        assertEquals("save(item); close()", analysis.outputFields.get(0).originalBody);
+        assertTrue(analysis.inputFields.isEmpty());
+        assertEquals(0, analysis.syntaxErrorCount);
+    }
+
+    @Test
+    public void SemicolonInABindingIsASyntaxError() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<p>{{ a; }}</p>");
+        assertEquals(1, analysis.syntaxErrorCount);
+        assertFalse(analysis.IsStatic());
+    }
+
+    @Test
+    public void SemicolonInAStringIsNoSyntaxError() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<p [title]=\"'a;b' + name\"></p>");
+        assertEquals(0, analysis.syntaxErrorCount);
+        assertEquals(Arrays.asList("name"), InputNames(analysis));
+    }
+
+    @Test
+    public void InterpolationTakenForATagIsNotStatic() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("a <b {{ c }}");
+        assertFalse(analysis.IsStatic());
+    }
+
+    @Test
+    public void InterpolationInAnAttributeIsAnInput() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<img src=\"/images/{{ image }}.png\">");
+        assertEquals(Arrays.asList("image"), InputNames(analysis));
+    }
+
+    @Test
+    public void ElementsAttributesAndPipesAreNamed() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<App-Item *ngIf=\"shown\" [(ngModel)]=\"query\" (keyup.enter)=\"search()\" "
+                + "[attr.aria-label]=\"label\" [class.active]=\"on\" #box let-row appHighlight>{{ price | currency:code | translate }}</App-Item>");
+        assertEquals(new HashSet<>(Arrays.asList("app-item")), analysis.elementNames);
+        assertEquals(new HashSet<>(Arrays.asList("ngIf", "ngModel", "keyup", "appHighlight")), analysis.attributeNames);
+        assertEquals(new HashSet<>(Arrays.asList("currency", "translate")), analysis.pipeNames);
+    }
+
+    @Test
+    public void PipeInAMicrosyntaxExpressionIsNamed() {
+        FastTemplateAnalysis analysis = FastTemplateAnalyzer.Analyze("<li *ngFor=\"let item of items | async\">{{ item }}</li>");
+        assertEquals(new HashSet<>(Arrays.asList("async")), analysis.pipeNames);
+    }
+
+    private static List<String> InputNames(FastTemplateAnalysis analysis) {
+        List<String> names = new ArrayList<>();
+        for (InputField inputField : analysis.inputFields) {
+            names.add(inputField.fieldName);
+        }
+        return names;
+    }
+}
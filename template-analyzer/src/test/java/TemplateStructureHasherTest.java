@@ -0,0 +1,93 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TemplateStructureHasherTest {
+    @Test
+    public void BindingsAndInterpolationsDontChangeTheHash() {
+        assertEquals(RootHash("<li [class.done]=\"task.done\" (click)=\"open(task)\"><b>{{ task.name }}</b><i></i></li>"),
+                RootHash("<li [class.done]=\"order.paid\" (click)=\"show(order)\"><b>{{ order.id }}</b><i></i></li>"));
+    }
+
+    @Test
+    public void EveryBindingSyntaxCountsAsBound() {
+        for (String bound : new String[]{"[title]", "(click)", "[(ngModel)]", "*ngIf", "#box", "bind-title", "on-click", "let-item", "ref-box"}) {
+            assertEquals(bound, RootHash("<p " + bound + "=\"a\"><b></b><i></i></p>"), RootHash("<p " + bound + "=\"b\"><b></b><i></i></p>"));
+        }
+    }
+
+    @Test
+    public void StaticAttributeValuesChangeTheHash() {
+        assertNotEquals(RootHash("<p class=\"card\"><b></b><i></i></p>"), RootHash("<p class=\"panel\"><b></b><i></i></p>"));
+    }
+
+    @Test
+    public void BoundAttributeNamesChangeTheHash() {
+        assertNotEquals(RootHash("<p [title]=\"a\"><b></b><i></i></p>"), RootHash("<p [alt]=\"a\"><b></b><i></i></p>"));
+    }
+
+    @Test
+    public void AttributeOrderDoesntChangeTheHash() {
+        assertEquals(RootHash("<p class=\"a\" id=\"b\"><b></b><i></i></p>"), RootHash("<p id=\"b\" class=\"a\"><b></b><i></i></p>"));
+    }
+
+    @Test
+    public void ChildOrderChangesTheHash() {
+        assertNotEquals(RootHash("<p><b></b><i></i></p>"), RootHash("<p><i></i><b></b></p>"));
+    }
+
+    @Test
+    public void TagNameCaseDoesntChangeTheHash() {
+        assertEquals(RootHash("<DIV><b></b><i></i></DIV>"), RootHash("<div><b></b><i></i></div>"));
+    }
+
+    @Test
+    public void WhitespaceIsNormalized() {
+        assertEquals(RootHash("<p><b>Total  price</b><i></i></p>"), RootHash("<p>\n  <b>\n    Total\n    price\n  </b>\n  <i></i>\n</p>"));
+        assertEquals(RootHash("<p class=\"a b\"><b></b><i></i></p>"), RootHash("<p class=\" a   b \"><b></b><i></i></p>"));
+    }
+
+    @Test
+    public void TextChangesTheHash() {
+        assertNotEquals(RootHash("<p><b>Total</b><i></i></p>"), RootHash("<p><b>Sum</b><i></i></p>"));
+        assertNotEquals(RootHash("<p><b>Total price</b><i></i></p>"), RootHash("<p><b>Totalprice</b><i></i></p>"));
+    }
+
+    @Test
+    public void OnlySubtreesWithEnoughElementsAreReported() {
+        List<MarkupFragment> fragments = TemplateStructureHasher.Hash("<ul><li><b></b></li><li></li></ul>", 2);
+        assertEquals(2, fragments.size());
+        assertEquals(2, fragments.get(0).elementCount);
+        assertEquals(4, fragments.get(1).elementCount);
+    }
+
+    @Test
+    public void FragmentCoversTheElement() {
+        String text = "<main> <p><b></b><i></i></p> </main>";
+        MarkupFragment fragment = TemplateStructureHasher.Hash(text, 3).get(0);
+        assertEquals("<p><b></b><i></i></p>", text.substring(fragment.startOffset, fragment.endOffset));
+    }
+
+    @Test
+    public void UnclosedElementsEndWithTheTemplate() {
+        String text = "<section><p><b></b><i></i>";
+        List<MarkupFragment> fragments = TemplateStructureHasher.Hash(text, 3);
+        assertEquals(2, fragments.size());
+        assertEquals(text.length(), fragments.get(0).endOffset);
+        assertEquals(text.length(), fragments.get(1).endOffset);
+        assertEquals(4, fragments.get(1).elementCount);
+        assertEquals(RootHash("<p><b></b><i></i></p>"), fragments.get(0).structureHash);
+    }
+
+    @Test
+    public void StrayEndTagIsIgnored() {
+        assertEquals(RootHash("<p><b></b><i></i></p>"), RootHash("</div><p><b></b><i></i></p>"));
+    }
+
+    private static int RootHash(String text) {
+        List<MarkupFragment> fragments = TemplateStructureHasher.Hash(text, 1);
+        return fragments.get(fragments.size() - 1).structureHash;
+    }
+}
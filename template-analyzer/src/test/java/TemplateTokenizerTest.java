@@ -0,0 +1,97 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TemplateTokenizerTest {
+    @Test
+    public void TagsAttributesAndInterpolations() {
+        assertEquals(Arrays.asList("<div", "class=card", "[title]=name", ">", "text 'Hi '", "{{ user }}", "</div>"),
+                Tokens("<div class=\"card\" [title]='name'>Hi {{ user }}</div>"));
+    }
+
+    @Test
+    public void AttributeWithoutValue() {
+        assertEquals(Arrays.asList("<input", "disabled", "#box", ">/"), Tokens("<input disabled #box>"));
+    }
+
+    @Test
+    public void UnquotedAttributeValue() {
+        assertEquals(Arrays.asList("<td", "colspan=2", ">", "</td>"), Tokens("<td colspan=2></td>"));
+    }
+
+    @Test
+    public void VoidAndSelfClosingElementsAreClosed() {
+        assertEquals(Arrays.asList("<br", ">/", "<app-item", ">/", "<img", "src=a.png", ">/"), Tokens("<br><app-item/><img src=\"a.png\"/>"));
+    }
+
+    @Test
+    public void CommentsAreSkipped() {
+        assertEquals(Arrays.asList("<p", ">", "</p>"), Tokens("<!-- {{ hidden }} <b> --><p></p>"));
+    }
+
+    @Test
+    public void ScriptAndStyleContentIsRawText() {
+        assertEquals(Arrays.asList("<style", ">", "</style>"), Tokens("<style>a < b {{ c }}</style>"));
+    }
+
+    @Test
+    public void LessThanInTextIsNoTag() {
+        assertEquals(Arrays.asList("text 'a < 2'"), Tokens("a < 2"));
+    }
+
+    @Test
+    public void UnterminatedInterpolationRunsToTheEnd() {
+        assertEquals(Arrays.asList("<p", ">", "{{ a</p>}}"), Tokens("<p>{{ a</p>"));
+    }
+
+    @Test
+    public void UnclosedTagEndsWithTheText() {
+        assertEquals(Arrays.asList("<div", "class=a", ">/"), Tokens("<div class=\"a\""));
+    }
+
+    @Test
+    public void UnclosedAttributeValueRunsToTheEnd() {
+        assertEquals(Arrays.asList("<div", "title=a>", ">/"), Tokens("<div title=\"a>"));
+    }
+
+    private static List<String> Tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        TemplateTokenizer.Tokenize(text, new TemplateTokenHandler() {
+            @Override
+            public void TagStart(int nameStart, int nameEnd) {
+                tokens.add("<" + text.substring(nameStart, nameEnd));
+            }
+
+            @Override
+            public void Attribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+                String name = text.substring(nameStart, nameEnd);
+                tokens.add(valueStart < 0 ? name : name + "=" + text.substring(valueStart, valueEnd));
+            }
+
+            @Override
+            public void TagStartEnd(int end, boolean closed) {
+                tokens.add(closed ? ">/" : ">");
+            }
+
+            @Override
+            public void TagEnd(int nameStart, int nameEnd, int end) {
+                tokens.add("</" + text.substring(nameStart, nameEnd) + ">");
+            }
+
+            @Override
+            public void Interpolation(int expressionStart, int expressionEnd) {
+                tokens.add("{{" + text.substring(expressionStart, expressionEnd) + "}}");
+            }
+
+            @Override
+            public void Text(int start, int end) {
+                tokens.add("text '" + text.substring(start, end) + "'");
+            }
+        });
+        return tokens;
+    }
+}